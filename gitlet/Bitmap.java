@@ -0,0 +1,161 @@
+package gitlet;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/** A set of non-negative integers, such as rows of the commit graph,
+ *  as a bitmap of 64-bit words, so that union, difference and counting
+ *  work a word at a time.  Written out, a bitmap is run-length
+ *  compressed in the manner of EWAH: a sequence of marker words, each
+ *  giving a run of words that are all zeros or all ones and then a
+ *  count of literal words that follow it as they are.  The long runs of
+ *  ones in the ancestry of a commit thus cost a word each.
+ *  @author Harshaan Sall */
+public class Bitmap {
+
+    /** Bits in a word. */
+    private static final int WORD_BITS = 64;
+
+    /** Bit of a marker word set when its run is of ones. */
+    private static final long FILL_ONES = 1L << 31;
+
+    /** Words of the bitmap, bit I of the set held in bit I % 64 of word
+     *  I / 64.  Words past the end are zero. */
+    private long[] _words;
+
+    /** Constructor for an empty bitmap. */
+    public Bitmap() {
+        this(new long[0]);
+    }
+
+    /** Constructor for the bitmap of WORDS. */
+    private Bitmap(long[] words) {
+        this._words = words;
+    }
+
+    /** Returns true if I is in the set.
+     * @param i i.
+     * @return bool. */
+    public boolean get(int i) {
+        int word = i / WORD_BITS;
+        return word < _words.length && (_words[word] & (1L << i)) != 0;
+    }
+
+    /** Adds I to the set.
+     * @param i i. */
+    public void set(int i) {
+        int word = i / WORD_BITS;
+        if (word >= _words.length) {
+            _words = Arrays.copyOf(_words,
+                    Math.max(word + 1, 2 * _words.length));
+        }
+        _words[word] |= 1L << i;
+    }
+
+    /** Adds every member of OTHER to this set.
+     * @param other o. */
+    public void or(Bitmap other) {
+        if (other._words.length > _words.length) {
+            _words = Arrays.copyOf(_words, other._words.length);
+        }
+        for (int w = 0; w < other._words.length; w += 1) {
+            _words[w] |= other._words[w];
+        }
+    }
+
+    /** Returns the members of this set that are not in OTHER.
+     * @param other o.
+     * @return difference. */
+    public Bitmap andNot(Bitmap other) {
+        long[] words = _words.clone();
+        int common = Math.min(words.length, other._words.length);
+        for (int w = 0; w < common; w += 1) {
+            words[w] &= ~other._words[w];
+        }
+        return new Bitmap(words);
+    }
+
+    /** Returns the number of members.
+     * @return count. */
+    public int cardinality() {
+        int count = 0;
+        for (long word : _words) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /** Returns the least member no less than FROM, or -1 if there is
+     *  none.
+     * @param from f.
+     * @return member. */
+    public int nextSetBit(int from) {
+        int w = from / WORD_BITS;
+        if (w >= _words.length) {
+            return -1;
+        }
+        long word = _words[w] & (-1L << from);
+        while (word == 0) {
+            w += 1;
+            if (w == _words.length) {
+                return -1;
+            }
+            word = _words[w];
+        }
+        return w * WORD_BITS + Long.numberOfTrailingZeros(word);
+    }
+
+    /** Writes this bitmap, compressed, to OUT.
+     * @param out o.
+     * @throws IOException on a failed write. */
+    public void write(DataOutputStream out) throws IOException {
+        int length = _words.length;
+        while (length > 0 && _words[length - 1] == 0) {
+            length -= 1;
+        }
+        out.writeInt(length);
+        int w = 0;
+        while (w < length) {
+            long fill = _words[w];
+            int run = 0;
+            if (fill == 0 || fill == -1L) {
+                for (; w < length && _words[w] == fill; w += 1) {
+                    run += 1;
+                }
+            }
+            int start = w;
+            while (w < length && _words[w] != 0 && _words[w] != -1L) {
+                w += 1;
+            }
+            out.writeLong((long) run << 32 | (fill == -1L ? FILL_ONES : 0)
+                          | (w - start));
+            for (int i = start; i < w; i += 1) {
+                out.writeLong(_words[i]);
+            }
+        }
+    }
+
+    /** Returns the bitmap written at the position of IN, reading past
+     *  it.
+     * @param in i.
+     * @return bitmap. */
+    public static Bitmap read(ByteBuffer in) {
+        long[] words = new long[in.getInt()];
+        int w = 0;
+        while (w < words.length) {
+            long marker = in.getLong();
+            int run = (int) (marker >>> 32);
+            if ((marker & FILL_ONES) != 0) {
+                Arrays.fill(words, w, w + run, -1L);
+            }
+            w += run;
+            for (int n = (int) (marker & (FILL_ONES - 1)); n > 0; n -= 1) {
+                words[w] = in.getLong();
+                w += 1;
+            }
+        }
+        return new Bitmap(words);
+    }
+}
@@ -0,0 +1,153 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Bitmap against a BitSet holding the same members.
+ *  @author Harshaan Sall */
+public class BitmapTest {
+
+    /** Returns a random set drawn from RAND of members below LIMIT, made
+     *  of runs of members, runs of non-members and scattered members,
+     *  so that its words include both fills and literals. */
+    private static BitSet randomSet(Random rand, int limit) {
+        BitSet result = new BitSet();
+        int i = 0;
+        while (i < limit) {
+            int run = rand.nextInt(300);
+            switch (rand.nextInt(3)) {
+            case 0:
+                result.set(i, Math.min(limit, i + run));
+                break;
+            case 1:
+                for (int j = i; j < Math.min(limit, i + run); j += 1) {
+                    if (rand.nextInt(5) == 0) {
+                        result.set(j);
+                    }
+                }
+                break;
+            default:
+                break;
+            }
+            i += run;
+        }
+        return result;
+    }
+
+    /** Returns a bitmap with the members of SET. */
+    private static Bitmap bitmapOf(BitSet set) {
+        Bitmap result = new Bitmap();
+        for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1)) {
+            result.set(i);
+        }
+        return result;
+    }
+
+    /** Checks that BITMAP has exactly the members of EXPECTED. */
+    static void check(BitSet expected, Bitmap bitmap) {
+        assertEquals(expected.cardinality(), bitmap.cardinality());
+        int limit = expected.length() + 130;
+        for (int i = 0; i < limit; i += 1) {
+            assertEquals(expected.get(i), bitmap.get(i));
+            assertEquals(expected.nextSetBit(i), bitmap.nextSetBit(i));
+        }
+    }
+
+    /** Returns BITMAPS written one after another and read back. */
+    private static List<Bitmap> roundTrip(List<Bitmap> bitmaps) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Bitmap bitmap : bitmaps) {
+                bitmap.write(out);
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        List<Bitmap> result = new ArrayList<>();
+        for (int n = 0; n < bitmaps.size(); n += 1) {
+            result.add(Bitmap.read(in));
+        }
+        assertFalse(in.hasRemaining());
+        return result;
+    }
+
+    /** Membership, counting and iteration agree with BitSet, around
+     *  word boundaries and past the end. */
+    @Test
+    public void members() {
+        check(new BitSet(), new Bitmap());
+        BitSet edges = new BitSet();
+        for (int i : new int[] {0, 63, 64, 127, 128, 1000}) {
+            edges.set(i);
+        }
+        check(edges, bitmapOf(edges));
+        Random rand = new Random(1);
+        for (int trial = 0; trial < 50; trial += 1) {
+            BitSet set = randomSet(rand, rand.nextInt(3000));
+            check(set, bitmapOf(set));
+        }
+    }
+
+    /** or and andNot agree with BitSet, and andNot leaves its operands
+     *  as they were. */
+    @Test
+    public void operations() {
+        Random rand = new Random(2);
+        for (int trial = 0; trial < 50; trial += 1) {
+            BitSet a = randomSet(rand, rand.nextInt(3000));
+            BitSet b = randomSet(rand, rand.nextInt(3000));
+            Bitmap left = bitmapOf(a);
+            Bitmap right = bitmapOf(b);
+            BitSet diff = (BitSet) a.clone();
+            diff.andNot(b);
+            check(diff, left.andNot(right));
+            check(a, left);
+            check(b, right);
+            BitSet union = (BitSet) a.clone();
+            union.or(b);
+            left.or(right);
+            check(union, left);
+        }
+    }
+
+    /** Bitmaps read back as written, several to a buffer, including
+     *  empty ones, ones ending in zero words and long runs of ones. */
+    @Test
+    public void serialization() {
+        Random rand = new Random(3);
+        List<BitSet> sets = new ArrayList<>();
+        sets.add(new BitSet());
+        BitSet ones = new BitSet();
+        ones.set(0, 64 * 100);
+        sets.add(ones);
+        BitSet late = new BitSet();
+        late.set(64 * 50 + 3);
+        sets.add(late);
+        for (int trial = 0; trial < 50; trial += 1) {
+            sets.add(randomSet(rand, rand.nextInt(5000)));
+        }
+        List<Bitmap> bitmaps = new ArrayList<>();
+        for (BitSet set : sets) {
+            bitmaps.add(bitmapOf(set));
+        }
+        Bitmap high = new Bitmap();
+        high.set(64 * 200);
+        Bitmap trailing = bitmapOf(late);
+        trailing.or(high);
+        bitmaps.set(2, trailing.andNot(high));
+        List<Bitmap> back = roundTrip(bitmaps);
+        for (int i = 0; i < sets.size(); i += 1) {
+            check(sets.get(i), back.get(i));
+        }
+    }
+}
@@ -1,34 +1,63 @@
 package gitlet;
 
-import java.io.Serializable;
-
-/** This class represents blobs.
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/** This class represents blobs.  A blob is identified by a SHA-1 hash
+ * of its contents alone, so identical contents in different commits,
+ * branches or file names are stored only once.  Blobs are kept in the
+ * object store as raw bytes; this class computes their ids, streaming
+ * file contents through a fixed-size buffer so that hashing a file
+ * never loads it whole.
  * @author Harshaan Sall*/
-public class Blob implements Serializable {
-
-    /** Blobname.*/
-    private String _blobName;
-
-    /** Blob contents.*/
-    private String _inside;
-
-
-    /** Constructor for blob, NAME is name, CONTENT is content, ID is id. */
-    public Blob(String name, String content) {
-        this._blobName = name;
-        this._inside = content;
+public class Blob {
+
+    /** Bytes hashed ahead of every blob's contents. */
+    private static final byte[] HEADER =
+        "blob ".getBytes(StandardCharsets.UTF_8);
+
+    /** Size of the buffer used to stream file contents. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Returns this thread's digest, reset and primed to hash the
+     *  contents of a blob.
+     * @return digest.*/
+    public static MessageDigest digest() {
+        MessageDigest md = ObjectId.digest();
+        md.update(HEADER);
+        return md;
     }
 
-    /** Getter method for.
-     *  @return Blobname.*/
-    public String getBlobName() {
-        return this._blobName;
+    /** Returns the id of a blob holding CONTENT.
+     * @param content content.
+     * @return id.*/
+    public static String idOf(String content) {
+        MessageDigest md = digest();
+        md.update(content.getBytes(StandardCharsets.UTF_8));
+        return ObjectId.of(md).toHex();
     }
 
-    /** Getter method for.
-     * @return content.*/
-    public String getContent() {
-        return this._inside;
+    /** Returns the id of a blob holding the contents of FILE.
+     * @param file file.
+     * @return id.*/
+    public static String idOf(File file) {
+        MessageDigest md = digest();
+        try (FileChannel in =
+                 FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+            while (in.read(buf) >= 0) {
+                buf.flip();
+                md.update(buf);
+                buf.clear();
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return ObjectId.of(md).toHex();
     }
-
 }
@@ -1,55 +1,30 @@
 package gitlet;
 
-import java.io.Serializable;
-import java.util.LinkedList;
-
-/** This file represents a branch object.
+/** This file represents a branch object: a name's pointer to the
+ *  commit at the head of the branch.  A branch keeps no history of its
+ *  own; its history is found by following parents from that commit, so
+ *  creating, moving or deleting a branch costs the same however long
+ *  its history is.
  * @author Harshaan Sall*/
-public class Branch implements Serializable {
+public class Branch {
 
     /** pointer for branch. */
-    private String _commitID;
-
-    /** Branch's commit history. */
-    private LinkedList<String> _allCommits;
+    private ObjectId _commitID;
 
-    /** Constructor for branch objects. COMMITID, COMMITHISTORY. */
-    public Branch(String commitID, LinkedList<String> commitHistory) {
-        this._commitID = commitID;
-        this._allCommits = commitHistory;
+    /** Constructor for branch objects. COMMITID. */
+    public Branch(String commitID) {
+        this._commitID = ObjectId.fromHex(commitID);
     }
 
     /** Moves pointer of branch.
      * @param newComId id. */
     public void updatePointer(String newComId) {
-        this._commitID = newComId;
+        this._commitID = ObjectId.fromHex(newComId);
     }
 
     /** Getter for commit id.
      * @return id. */
     public String getID() {
-        return this._commitID;
-    }
-
-    /** Getter for history.
-     * @return hist. */
-    public LinkedList<String> getHist() {
-        return this._allCommits;
-    }
-
-    /** Adds commit to history.
-     * @param neww comid. */
-    public void addCommit(String neww) {
-        this._allCommits.add(neww);
+        return this._commitID.toHex();
     }
-
-    /** Checks if branch has commit with ID.
-     * @param id id.
-     * @return bool.*/
-    public boolean containsCommit(String id) {
-        return this.getHist().contains(id);
-    }
-
-
 }
-
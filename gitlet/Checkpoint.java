@@ -0,0 +1,86 @@
+package gitlet;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/** One component of the repository state as it stood after a given
+ *  journal record, held in its Codec encoding.  Checkpoints are
+ *  written to a temporary file, forced to disk and then atomically
+ *  renamed into place, so a crash leaves either the old checkpoint or
+ *  the new one, never a mix.
+ *  @author Harshaan Sall */
+public class Checkpoint {
+
+    /** Magic number at the start of a checkpoint. */
+    private static final int MAGIC = 0x47434b50;
+
+    /** Length of the header: magic and sequence number. */
+    private static final int HEADER_LENGTH = 12;
+
+    /** Sequence number of the last journal record reflected. */
+    private final long _seq;
+
+    /** The encoded component. */
+    private final byte[] _data;
+
+    /** Constructor for a checkpoint of the encoded DATA as of journal
+     *  record SEQ. */
+    public Checkpoint(long seq, byte[] data) {
+        this._seq = seq;
+        this._data = data;
+    }
+
+    /** Getter for sequence number.
+     * @return seq. */
+    public long getSeq() {
+        return this._seq;
+    }
+
+    /** Getter for the encoded component.
+     * @return data. */
+    public byte[] getData() {
+        return this._data;
+    }
+
+    /** Returns the checkpoint stored in FILE.
+     * @param file file.
+     * @return checkpoint. */
+    public static Checkpoint read(File file) {
+        byte[] contents = Utils.readContents(file);
+        ByteBuffer header = ByteBuffer.wrap(contents);
+        if (contents.length < HEADER_LENGTH || header.getInt() != MAGIC) {
+            throw Utils.error("Corrupt checkpoint %s.", file);
+        }
+        return new Checkpoint(header.getLong(),
+                Arrays.copyOfRange(contents, HEADER_LENGTH, contents.length));
+    }
+
+    /** Atomically replaces FILE with this checkpoint.
+     * @param file file. */
+    public void write(File file) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeLong(_seq);
+            data.write(_data);
+            data.flush();
+            out.getChannel().force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
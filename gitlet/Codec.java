@@ -0,0 +1,344 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+/** Compact binary encodings of commits, branches and the other
+ *  components of the repository state, used in place of Java
+ *  serialization.  Every encoding starts with the format VERSION.
+ *  Counts and lengths are unsigned varints, strings are a length
+ *  followed by UTF-8 bytes, and object ids are written as their 20 raw
+ *  bytes.  Version 1 commits listed every file; since version 2 a
+ *  commit names the Tree of its files instead, and since version 3 it
+ *  records the second parent of a merge.  Until version 4 a branch
+ *  listed the id of every commit on it.  Until version 5 a commit's
+ *  time was a java.sql.Timestamp string in the local zone; it is now
+ *  milliseconds since the epoch and the zone's offset from UTC, with
+ *  the string kept only for the commits it was made for, whose ids
+ *  hash it.  Older versions are still read.
+ *  @author Harshaan Sall */
+public class Codec {
+
+    /** Version of the formats written. */
+    static final int VERSION = 5;
+
+    /** Length of a raw object id. */
+    private static final int ID_BYTES = Utils.UID_LENGTH / 2;
+
+    /** Returns the encoding of COM.
+     * @param com commit.
+     * @return bytes. */
+    public static byte[] encodeCommit(Commit com) {
+        Writer out = new Writer();
+        out.writeString(com.getMessage());
+        out.writeSignedVarint(com.getTime());
+        out.writeSignedVarint(com.getOffset());
+        out.writeOptionalString(com.getStamp());
+        out.writeOptionalId(com.getParent());
+        out.writeOptionalId(com.getMergeParent());
+        out.writeId(com.getTree().getId());
+        return out.toByteArray();
+    }
+
+    /** Returns the commit encoded in DATA, whose tree is read from STORE
+     *  when first used.
+     * @param data bytes.
+     * @param store s.
+     * @return commit. */
+    public static Commit decodeCommit(byte[] data, ObjectStore store) {
+        Reader in = new Reader(data);
+        String message = in.readString();
+        long time = 0;
+        int offset = 0;
+        String stamp;
+        if (in.getVersion() < 5) {
+            stamp = in.readString();
+        } else {
+            time = in.readSignedVarint();
+            offset = (int) in.readSignedVarint();
+            stamp = in.readOptionalString();
+        }
+        String parent = in.readOptionalId();
+        String mergeParent = in.getVersion() < 3 ? null
+            : in.readOptionalId();
+        Tree tree = in.getVersion() == 1 ? Tree.of(in.readFiles())
+            : new Tree(in.readId(), store);
+        Commit com = stamp != null
+            ? new Commit(message, stamp, tree, parent, mergeParent)
+            : new Commit(message, time, offset, tree, parent, mergeParent);
+        com.setUniqueID();
+        return com;
+    }
+
+    /** Returns the encoding of a tree with FILES and the subtrees TREES,
+     *  both mapping names to object ids.
+     * @param files f.
+     * @param trees t.
+     * @return bytes. */
+    public static byte[] encodeTree(Map<String, String> files,
+                                    Map<String, String> trees) {
+        Writer out = new Writer();
+        out.writeFiles(files);
+        out.writeFiles(trees);
+        return out.toByteArray();
+    }
+
+    /** Reads the tree encoded in DATA, putting its files in FILES and
+     *  its subtrees in TREES, both by name.
+     * @param data bytes.
+     * @param files f.
+     * @param trees t. */
+    public static void decodeTree(byte[] data, Map<String, String> files,
+                                  Map<String, String> trees) {
+        Reader in = new Reader(data);
+        in.readFiles(files);
+        in.readFiles(trees);
+    }
+
+    /** Returns the encoding of FILES, which maps file names to blob ids.
+     * @param files files.
+     * @return bytes. */
+    public static byte[] encodeFiles(Map<String, String> files) {
+        Writer out = new Writer();
+        out.writeFiles(files);
+        return out.toByteArray();
+    }
+
+    /** Returns the map of file names to blob ids encoded in DATA.
+     * @param data bytes.
+     * @return files. */
+    public static HashMap<String, String> decodeFiles(byte[] data) {
+        return new Reader(data).readFiles();
+    }
+
+    /** Returns the encoding of the list of object ids IDS.
+     * @param ids ids.
+     * @return bytes. */
+    public static byte[] encodeIds(List<String> ids) {
+        Writer out = new Writer();
+        out.writeVarint(ids.size());
+        for (String id : ids) {
+            out.writeId(id);
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the list of object ids encoded in DATA.
+     * @param data bytes.
+     * @return ids. */
+    public static LinkedList<String> decodeIds(byte[] data) {
+        Reader in = new Reader(data);
+        LinkedList<String> result = new LinkedList<>();
+        for (long n = in.readVarint(); n > 0; n -= 1) {
+            result.add(in.readId());
+        }
+        return result;
+    }
+
+    /** Returns the encoding of BRANCHES, which maps names to branches.
+     * @param branches branches.
+     * @return bytes. */
+    public static byte[] encodeBranches(Map<String, Branch> branches) {
+        Writer out = new Writer();
+        List<String> names = new ArrayList<>(branches.keySet());
+        Collections.sort(names);
+        out.writeVarint(names.size());
+        for (String name : names) {
+            Branch br = branches.get(name);
+            out.writeString(name);
+            out.writeId(br.getID());
+        }
+        return out.toByteArray();
+    }
+
+    /** Returns the map of names to branches encoded in DATA.
+     * @param data bytes.
+     * @return branches. */
+    public static HashMap<String, Branch> decodeBranches(byte[] data) {
+        Reader in = new Reader(data);
+        HashMap<String, Branch> result = new HashMap<>();
+        for (long n = in.readVarint(); n > 0; n -= 1) {
+            String name = in.readString();
+            String id = in.readId();
+            if (in.getVersion() < 4) {
+                for (long k = in.readVarint(); k > 0; k -= 1) {
+                    in.readId();
+                }
+            }
+            result.put(name, new Branch(id));
+        }
+        return result;
+    }
+
+    /** Returns the encoding of the string VAL.
+     * @param val v.
+     * @return bytes. */
+    public static byte[] encodeString(String val) {
+        Writer out = new Writer();
+        out.writeString(val);
+        return out.toByteArray();
+    }
+
+    /** Returns the string encoded in DATA.
+     * @param data bytes.
+     * @return string. */
+    public static String decodeString(byte[] data) {
+        return new Reader(data).readString();
+    }
+
+    /** Accumulates an encoding, starting with the format version. */
+    static class Writer extends ByteArrayOutputStream {
+
+        /** Constructor that writes the version header. */
+        Writer() {
+            writeVarint(VERSION);
+        }
+
+        /** Writes the non-negative VAL as an unsigned varint. */
+        void writeVarint(long val) {
+            while ((val & ~0x7fL) != 0) {
+                write((int) (val & 0x7f) | 0x80);
+                val >>>= 7;
+            }
+            write((int) val);
+        }
+
+        /** Writes VAL, which may be negative, as a zigzag varint. */
+        void writeSignedVarint(long val) {
+            writeVarint((val << 1) ^ (val >> 63));
+        }
+
+        /** Writes the string VAL. */
+        void writeString(String val) {
+            byte[] bytes = val.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            write(bytes, 0, bytes.length);
+        }
+
+        /** Writes the string VAL, which may be null. */
+        void writeOptionalString(String val) {
+            write(val == null ? 0 : 1);
+            if (val != null) {
+                writeString(val);
+            }
+        }
+
+        /** Writes the hex object id ID as raw bytes. */
+        void writeId(String id) {
+            write(ObjectId.rawOf(id), 0, ID_BYTES);
+        }
+
+        /** Writes the object id ID, which may be null. */
+        void writeOptionalId(String id) {
+            write(id == null ? 0 : 1);
+            if (id != null) {
+                writeId(id);
+            }
+        }
+
+        /** Writes FILES, mapping names to object ids, in name order. */
+        void writeFiles(Map<String, String> files) {
+            List<String> names = new ArrayList<>(files.keySet());
+            Collections.sort(names);
+            writeVarint(names.size());
+            for (String name : names) {
+                writeString(name);
+                writeId(files.get(name));
+            }
+        }
+    }
+
+    /** Reads back an encoding made by a Writer. */
+    static class Reader {
+
+        /** The encoding. */
+        private final byte[] _data;
+
+        /** Position of the next byte to read. */
+        private int _pos;
+
+        /** Format version of the encoding. */
+        private final long _version;
+
+        /** Constructor for a reader of DATA that checks its version. */
+        Reader(byte[] data) {
+            this._data = data;
+            this._version = readVarint();
+            if (_version < 1 || _version > VERSION) {
+                throw Utils.error("Unsupported format version %d.",
+                                  _version);
+            }
+        }
+
+        /** Getter for version.
+         * @return version. */
+        long getVersion() {
+            return this._version;
+        }
+
+        /** Reads an unsigned varint. */
+        long readVarint() {
+            long val = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = _data[_pos++] & 0xff;
+                val |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return val;
+        }
+
+        /** Reads a zigzag varint. */
+        long readSignedVarint() {
+            long val = readVarint();
+            return (val >>> 1) ^ -(val & 1);
+        }
+
+        /** Reads a string. */
+        String readString() {
+            int length = (int) readVarint();
+            String result =
+                new String(_data, _pos, length, StandardCharsets.UTF_8);
+            _pos += length;
+            return result;
+        }
+
+        /** Reads a string that may be null. */
+        String readOptionalString() {
+            return _data[_pos++] == 0 ? null : readString();
+        }
+
+        /** Reads a raw object id, returning it in hex. */
+        String readId() {
+            _pos += ID_BYTES;
+            return ObjectId.toHex(_data, _pos - ID_BYTES, ID_BYTES);
+        }
+
+        /** Reads an object id that may be null. */
+        String readOptionalId() {
+            return _data[_pos++] == 0 ? null : readId();
+        }
+
+        /** Reads a map of names to object ids. */
+        HashMap<String, String> readFiles() {
+            HashMap<String, String> result = new HashMap<>();
+            readFiles(result);
+            return result;
+        }
+
+        /** Reads a map of names to object ids into RESULT. */
+        void readFiles(Map<String, String> result) {
+            for (long n = readVarint(); n > 0; n -= 1) {
+                String name = readString();
+                result.put(name, readId());
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package gitlet;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Round-trip tests of the Codec encodings.
+ *  @author Harshaan Sall */
+public class CodecTest {
+
+    /** Returns a random object id drawn from RAND. */
+    private static String randomId(Random rand) {
+        byte[] raw = new byte[ObjectId.BYTES];
+        rand.nextBytes(raw);
+        return ObjectId.toHex(raw);
+    }
+
+    /** Varints of every width, signed or not, read back as written. */
+    @Test
+    public void varints() {
+        long[] vals = {0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE,
+                       Integer.MIN_VALUE, -1, -64, -65, Long.MAX_VALUE,
+                       Long.MIN_VALUE, 1_600_000_000_000L};
+        Codec.Writer out = new Codec.Writer();
+        for (long val : vals) {
+            out.writeSignedVarint(val);
+            if (val >= 0) {
+                out.writeVarint(val);
+            }
+        }
+        Codec.Reader in = new Codec.Reader(out.toByteArray());
+        assertEquals(Codec.VERSION, in.getVersion());
+        for (long val : vals) {
+            assertEquals(val, in.readSignedVarint());
+            if (val >= 0) {
+                assertEquals(val, in.readVarint());
+            }
+        }
+    }
+
+    /** Strings, including empty and non-ASCII ones, read back as
+     *  written. */
+    @Test
+    public void strings() {
+        String[] vals = {"", "a", "commit message\nline 2",
+                         "caf\u00e9 \u6f22\u5b57 \ud83d\ude00"};
+        for (String val : vals) {
+            assertEquals(val, Codec.decodeString(Codec.encodeString(val)));
+        }
+    }
+
+    /** Maps of file names to blob ids read back as written. */
+    @Test
+    public void files() {
+        Random rand = new Random(2);
+        HashMap<String, String> files = new HashMap<>();
+        assertEquals(files, Codec.decodeFiles(Codec.encodeFiles(files)));
+        for (int i = 0; i < 200; i += 1) {
+            files.put("dir" + i % 7 + "/f\u00e9" + i + ".txt",
+                      randomId(rand));
+        }
+        assertEquals(files, Codec.decodeFiles(Codec.encodeFiles(files)));
+    }
+
+    /** Lists of ids read back as written, in order. */
+    @Test
+    public void ids() {
+        Random rand = new Random(3);
+        LinkedList<String> ids = new LinkedList<>();
+        assertEquals(ids, Codec.decodeIds(Codec.encodeIds(ids)));
+        for (int i = 0; i < 100; i += 1) {
+            ids.add(randomId(rand));
+        }
+        assertEquals(ids, Codec.decodeIds(Codec.encodeIds(ids)));
+    }
+
+    /** Branches read back with the heads they were written with. */
+    @Test
+    public void branches() {
+        Random rand = new Random(4);
+        HashMap<String, Branch> branches = new HashMap<>();
+        for (String name : new String[] {"master", "other", "feature/x"}) {
+            branches.put(name, new Branch(randomId(rand)));
+        }
+        HashMap<String, Branch> result =
+            Codec.decodeBranches(Codec.encodeBranches(branches));
+        assertEquals(branches.keySet(), result.keySet());
+        for (Map.Entry<String, Branch> br : branches.entrySet()) {
+            assertEquals(br.getValue().getID(),
+                         result.get(br.getKey()).getID());
+        }
+    }
+
+    /** Commits, with and without parents and legacy stamps, read back
+     *  with the same fields and so the same id. */
+    @Test
+    public void commits() {
+        Random rand = new Random(5);
+        String tree = randomId(rand);
+        String parent = randomId(rand);
+        String merge = randomId(rand);
+        Commit[] commits = {
+            new Commit("initial commit", 0, 0, new Tree(tree, null),
+                       null, null),
+            new Commit("child", 1_700_000_000_123L, -7 * 3600,
+                       new Tree(tree, null), parent, null),
+            new Commit("Merged other into master.", -5000L, 5 * 3600 + 1800,
+                       new Tree(tree, null), parent, merge),
+            new Commit("legacy", "2019-11-05 12:00:00.123",
+                       new Tree(tree, null), parent, null),
+        };
+        for (Commit com : commits) {
+            com.setUniqueID();
+            Commit back = Codec.decodeCommit(Codec.encodeCommit(com), null);
+            assertEquals(com.getMessage(), back.getMessage());
+            assertEquals(com.getTime(), back.getTime());
+            assertEquals(com.getOffset(), back.getOffset());
+            assertEquals(com.getStamp(), back.getStamp());
+            assertEquals(com.getParent(), back.getParent());
+            assertEquals(com.getMergeParent(), back.getMergeParent());
+            assertEquals(tree, back.getTree().getId());
+            assertEquals(com.getUniqueID(), back.getUniqueID());
+        }
+    }
+}
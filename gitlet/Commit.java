@@ -1,40 +1,100 @@
 package gitlet;
 
-import java.io.Serializable;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /** This class represents a commit object in gitlet.
  * @author Harshaan Sall */
-public class Commit implements Serializable {
+public class Commit {
 
     /** message. */
     private final String _message;
 
-    /** Timestamp. */
-    private final String _timestamp;
+    /** Time the commit was made, in milliseconds since the epoch. */
+    private final long _time;
+
+    /** Offset from UTC of the zone the commit was made in, in seconds. */
+    private final int _offset;
+
+    /** The java.sql.Timestamp string an earlier version stored as the
+     *  time of this commit, which its id is the hash of, or null. */
+    private final String _stamp;
 
     /** Parent. */
     private final String _commitParent;
 
-    /** Files. */
-    private HashMap<String, Blob> _files;
+    /** Second parent, the commit merged in, or null if this is not a
+     *  merge commit. */
+    private final String _mergeParent;
+
+    /** Tree of the files. */
+    private final Tree _tree;
+
+    /** Files, mapping each path to the id of its blob, listed from the
+     *  tree on first use or derived from the parent's. */
+    private Hamt<String, String> _files;
 
     /** ID. */
     private String uniqueID;
 
-    /** Constructor for commit object. MESSAGE, TIMESTAMP, FILES, PARENT. */
-    public Commit(String message, String timestamp,
-                  HashMap<String, Blob> files, String parent) {
+    /** Constructor for a commit object made at TIME, in milliseconds
+     *  since the epoch, in a zone OFFSET seconds from UTC.  MESSAGE,
+     *  TIME, OFFSET, TREE, PARENT, MERGEPARENT. */
+    public Commit(String message, long time, int offset,
+                  Tree tree, String parent, String mergeParent) {
+        this(message, time, offset, null, tree, parent, mergeParent);
+    }
+
+    /** Constructor for a commit object made by an earlier version,
+     *  which stored its time as STAMP, a java.sql.Timestamp string in
+     *  the local zone.  MESSAGE, STAMP, TREE, PARENT, MERGEPARENT. */
+    public Commit(String message, String stamp,
+                  Tree tree, String parent, String mergeParent) {
+        this(message, java.sql.Timestamp.valueOf(stamp).getTime(),
+             localOffset(java.sql.Timestamp.valueOf(stamp).getTime()),
+             stamp, tree, parent, mergeParent);
+    }
+
+    /** Constructor for commit object. MESSAGE, TIME, OFFSET, STAMP,
+     *  TREE, PARENT, MERGEPARENT. */
+    private Commit(String message, long time, int offset, String stamp,
+                   Tree tree, String parent, String mergeParent) {
         this._message = message;
-        this._timestamp = timestamp;
-        this._files = files;
+        this._time = time;
+        this._offset = offset;
+        this._stamp = stamp;
+        this._tree = tree;
         this._commitParent = parent;
+        this._mergeParent = mergeParent;
+    }
+
+    /** Returns the offset from UTC, in seconds, of the local zone at
+     *  TIME, in milliseconds since the epoch.
+     * @param time t.
+     * @return offset. */
+    public static int localOffset(long time) {
+        return ZoneId.systemDefault().getRules()
+            .getOffset(Instant.ofEpochMilli(time)).getTotalSeconds();
     }
 
-    /** Sets unique ID. */
+    /** Sets unique ID: the hash of everything the commit records, its
+     *  tree and parents as well as its time and message, so that two
+     *  commits differing in anything have different ids.  A commit made
+     *  by an earlier version keeps the id it was given then, the hash of
+     *  its message and time string. */
     public void setUniqueID() {
-        this.uniqueID = Utils.sha1(_message, _timestamp);
+        if (_stamp != null) {
+            this.uniqueID = Utils.sha1(_message, _stamp);
+            return;
+        }
+        this.uniqueID = Utils.sha1("commit ", _tree.getId(),
+                "\n", _commitParent == null ? "" : _commitParent,
+                "\n", _mergeParent == null ? "" : _mergeParent,
+                "\n", Long.toString(_time), " ", Integer.toString(_offset),
+                "\n", _message);
     }
 
     /** Getter for message.
@@ -43,10 +103,35 @@ public class Commit implements Serializable {
         return this._message;
     }
 
-    /** Getter for timestamp.
-     * @return timestamp. */
-    public String getTimestamp() {
-        return this._timestamp;
+    /** Getter for time, in milliseconds since the epoch.
+     * @return time. */
+    public long getTime() {
+        return this._time;
+    }
+
+    /** Getter for the zone offset, in seconds east of UTC.
+     * @return offset. */
+    public int getOffset() {
+        return this._offset;
+    }
+
+    /** Getter for the time string of a commit made by an earlier
+     *  version.
+     * @return stamp, or null. */
+    public String getStamp() {
+        return this._stamp;
+    }
+
+    /** Getter for parent.
+     * @return parent id, or null for the initial commit. */
+    public String getParent() {
+        return this._commitParent;
+    }
+
+    /** Getter for merge parent.
+     * @return second parent id, or null if this is not a merge. */
+    public String getMergeParent() {
+        return this._mergeParent;
     }
 
     /** Getter for id.
@@ -55,9 +140,46 @@ public class Commit implements Serializable {
         return this.uniqueID;
     }
 
-    /** Getter for files.
+    /** Getter for tree.
+     * @return tree. */
+    public Tree getTree() {
+        return this._tree;
+    }
+
+    /** Returns a commit with MESSAGE, made at TIME in a zone OFFSET
+     *  seconds from UTC, whose parent is this one, and whose second
+     *  parent is MERGEPARENT unless that is null, and whose files are
+     *  this one's with ADDITIONS, mapping paths to blob ids, added and
+     *  REMOVALS removed.  The new commit shares
+     *  every directory it does not change with this one, and, if this
+     *  commit's file table is listed, every untouched node of it.
+     * @param message m.
+     * @param time t.
+     * @param offset o.
+     * @param mergeParent p.
+     * @param additions a.
+     * @param removals r.
+     * @return commit. */
+    public Commit child(String message, long time, int offset,
+                        String mergeParent, Map<String, String> additions,
+                        Set<String> removals) {
+        Commit com = new Commit(message, time, offset,
+                _tree.with(additions, removals), uniqueID, mergeParent);
+        if (_files != null) {
+            com._files = _files.plusAll(additions).minusAll(removals);
+        }
+        com.setUniqueID();
+        return com;
+    }
+
+    /** Getter for files, an immutable map.
      * @return files. */
-    public HashMap<String, Blob> getFiles() {
+    public Map<String, String> getFiles() {
+        if (this._files == null) {
+            HashMap<String, String> files = new HashMap<>();
+            this._tree.flatten(files);
+            this._files = Hamt.<String, String>empty().plusAll(files);
+        }
         return this._files;
     }
 
@@ -67,25 +189,19 @@ public class Commit implements Serializable {
         return this.getFiles().keySet();
     }
 
-    /** Getter for file.
+    /** Getter for the blob id of a file.
      * @param name name.
-     * @return get file. */
-    public Blob getFile(String name) {
-        return this.getFiles().get(name);
+     * @return blob id. */
+    public String getFile(String name) {
+        return this._files != null ? this._files.get(name)
+            : this._tree.get(name);
     }
 
     /** Checks for file.
      * @param name file.
      * @return file. */
     public boolean containsFile(String name) {
-        return this.getFiles().containsKey(name);
-    }
-
-    /** Getter for contents of a file.
-     * @param name name.
-     * @return content. */
-    public String getFileContents(String name) {
-        return this.getFile(name).getContent();
+        return getFile(name) != null;
     }
 }
 
@@ -0,0 +1,352 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** The commit graph: one fixed-width row per commit, giving its id, the
+ *  rows of its parents, its generation number and its commit time, so
+ *  that walking history never reads a commit from the object store.
+ *  Rows are only ever appended, and a commit's parents always come
+ *  before it.  A commit's generation is one more than the greatest of
+ *  its parents', and 1 for a root, so a commit can only be an ancestor
+ *  of commits with a greater generation.  The file is read through a
+ *  memory map; the rows added by a command are kept in memory and
+ *  appended to the file when it finishes.  A row cut short by a crash
+ *  is dropped when the file is next opened.
+ *  @author Harshaan Sall */
+public class CommitGraph {
+
+    /** Magic number at the start of a commit graph. */
+    private static final int MAGIC = 0x47475048;
+
+    /** Format version of commit graphs. */
+    private static final int VERSION = 1;
+
+    /** Length of the header. */
+    private static final int HEADER_LENGTH = 8;
+
+    /** Position of the first parent's row within a row. */
+    private static final int PARENT = ObjectId.BYTES;
+
+    /** Position of the second parent's row within a row. */
+    private static final int MERGE_PARENT = PARENT + 4;
+
+    /** Position of the generation number within a row. */
+    private static final int GENERATION = MERGE_PARENT + 4;
+
+    /** Position of the commit time within a row. */
+    private static final int TIME = GENERATION + 4;
+
+    /** Length of a row. */
+    private static final int ROW_LENGTH = TIME + 8;
+
+    /** Mark of a row reached from the first commit of a merge base
+     *  search. */
+    private static final int FROM_FIRST = 1;
+
+    /** Mark of a row reached from the second commit. */
+    private static final int FROM_SECOND = 2;
+
+    /** Mark of a row reached from a common ancestor, which can be no
+     *  better than that ancestor. */
+    private static final int STALE = 4;
+
+    /** File holding the graph. */
+    private final File _file;
+
+    /** Rows of the file, mapped when first used. */
+    private ByteBuffer _map;
+
+    /** Number of rows in the file when it was mapped. */
+    private int _mapped;
+
+    /** Rows added since the file was mapped, not yet written. */
+    private ByteBuffer _added;
+
+    /** Row of each commit id, built when first needed. */
+    private HashMap<ObjectId, Integer> _rows;
+
+    /** Constructor for the graph kept in FILE, read on first use. */
+    public CommitGraph(File file) {
+        this._file = file;
+    }
+
+    /** Getter for the number of rows.
+     * @return size. */
+    public int size() {
+        load();
+        return _mapped + _added.position() / ROW_LENGTH;
+    }
+
+    /** Returns the row of commit ID, or -1 if it is not in the graph.
+     * @param id id.
+     * @return row. */
+    public int rowOf(String id) {
+        load();
+        if (_rows == null) {
+            _rows = new HashMap<>();
+            for (int row = 0; row < size(); row += 1) {
+                _rows.put(objectIdAt(row), row);
+            }
+        }
+        ObjectId key = ObjectId.parse(id);
+        Integer row = key == null ? null : _rows.get(key);
+        return row == null ? -1 : row;
+    }
+
+    /** Returns the commit id of ROW.
+     * @param row r.
+     * @return id. */
+    public String idAt(int row) {
+        return objectIdAt(row).toHex();
+    }
+
+    /** Returns the row of the first parent of ROW, or -1 for a root.
+     * @param row r.
+     * @return parent row. */
+    public int parent(int row) {
+        return buffer(row).getInt(offset(row) + PARENT);
+    }
+
+    /** Returns the row of the second parent of ROW, or -1 if it is not a
+     *  merge.
+     * @param row r.
+     * @return parent row. */
+    public int mergeParent(int row) {
+        return buffer(row).getInt(offset(row) + MERGE_PARENT);
+    }
+
+    /** Returns the generation number of ROW.
+     * @param row r.
+     * @return generation. */
+    public int generation(int row) {
+        return buffer(row).getInt(offset(row) + GENERATION);
+    }
+
+    /** Returns the commit time of ROW, in milliseconds since the epoch.
+     * @param row r.
+     * @return time. */
+    public long time(int row) {
+        return buffer(row).getLong(offset(row) + TIME);
+    }
+
+    /** Adds a row for the commit ID made at TIME, in milliseconds since
+     *  the epoch, whose parents are the rows PARENT and MERGEPARENT,
+     *  either of which may be -1, and returns it.
+     * @param id id.
+     * @param parent first parent row.
+     * @param mergeParent second parent row.
+     * @param time t.
+     * @return row. */
+    public int add(String id, int parent, int mergeParent, long time) {
+        int row = rowOf(id);
+        if (row >= 0) {
+            return row;
+        }
+        int generation = 1;
+        if (parent >= 0) {
+            generation = Math.max(generation, generation(parent) + 1);
+        }
+        if (mergeParent >= 0) {
+            generation = Math.max(generation, generation(mergeParent) + 1);
+        }
+        if (_added.remaining() < ROW_LENGTH) {
+            ByteBuffer grown = ByteBuffer.allocate(2 * _added.capacity());
+            _added.flip();
+            grown.put(_added);
+            _added = grown;
+        }
+        row = size();
+        byte[] raw = ObjectId.rawOf(id);
+        _added.put(raw).putInt(parent).putInt(mergeParent)
+            .putInt(generation).putLong(time);
+        _rows.put(ObjectId.fromRaw(raw, 0), row);
+        return row;
+    }
+
+    /** Returns the best common ancestors of the rows FIRST and SECOND:
+     *  every common ancestor that is not an ancestor of another, newest
+     *  first.  Both commits' ancestors are walked together, highest
+     *  generation first, so a row is expanded only after every commit
+     *  that could reach it.  A row reached from both sides is a common
+     *  ancestor, and everything below it is marked stale; the search
+     *  stops as soon as only stale rows are left to expand.
+     * @param first f.
+     * @param second s.
+     * @return rows. */
+    public List<Integer> mergeBases(int first, int second) {
+        List<Integer> result = new ArrayList<>();
+        if (first == second) {
+            result.add(first);
+            return result;
+        }
+        HashMap<Integer, Integer> marks = new HashMap<>();
+        PriorityQueue<Integer> queue = new PriorityQueue<>(newestFirst());
+        marks.put(first, FROM_FIRST);
+        marks.put(second, FROM_SECOND);
+        queue.add(first);
+        queue.add(second);
+        int live = 2;
+        while (live > 0) {
+            int row = queue.poll();
+            int mark = marks.get(row);
+            if ((mark & STALE) == 0) {
+                live -= 1;
+                if (mark == (FROM_FIRST | FROM_SECOND)) {
+                    result.add(row);
+                    mark |= STALE;
+                }
+            }
+            for (int parent : new int[] {parent(row), mergeParent(row)}) {
+                if (parent < 0) {
+                    continue;
+                }
+                Integer old = marks.get(parent);
+                int merged = old == null ? mark : old | mark;
+                if (old == null) {
+                    queue.add(parent);
+                } else if (merged == old) {
+                    continue;
+                } else if ((old & STALE) == 0) {
+                    live -= 1;
+                }
+                marks.put(parent, merged);
+                if ((merged & STALE) == 0) {
+                    live += 1;
+                }
+            }
+        }
+        result.removeIf(row -> {
+            for (int other : result) {
+                if (other != row && isAncestor(row, other)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+        result.sort(newestFirst());
+        return result;
+    }
+
+    /** Returns true if the row ANCESTOR is an ancestor of, or is, the
+     *  row DESCENDANT.  The walk never goes below ANCESTOR's
+     *  generation.
+     * @param ancestor a.
+     * @param descendant d.
+     * @return bool. */
+    public boolean isAncestor(int ancestor, int descendant) {
+        int floor = generation(ancestor);
+        HashSet<Integer> seen = new HashSet<>();
+        ArrayDeque<Integer> todo = new ArrayDeque<>();
+        todo.push(descendant);
+        while (!todo.isEmpty()) {
+            int row = todo.pop();
+            if (row == ancestor) {
+                return true;
+            }
+            for (int parent : new int[] {parent(row), mergeParent(row)}) {
+                if (parent >= 0 && generation(parent) >= floor
+                    && seen.add(parent)) {
+                    todo.push(parent);
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Appends the rows added since the graph was read to its file. */
+    public void flush() {
+        if (_added == null || _added.position() == 0) {
+            return;
+        }
+        try (RandomAccessFile out = new RandomAccessFile(_file, "rw")) {
+            if (_mapped == 0) {
+                out.setLength(0);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+            }
+            out.seek(HEADER_LENGTH + (long) _mapped * ROW_LENGTH);
+            out.write(_added.array(), 0, _added.position());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _map = null;
+        _rows = null;
+    }
+
+    /** Deletes the file of this graph, so that it is rebuilt as it is
+     *  next used. */
+    public void clear() {
+        _file.delete();
+        _map = null;
+        _rows = null;
+    }
+
+    /** Returns an order on rows putting higher generations first, and
+     *  of those, later commit times first. */
+    private Comparator<Integer> newestFirst() {
+        return Comparator.comparingInt((Integer row) -> -generation(row))
+            .thenComparingLong(row -> -time(row));
+    }
+
+    /** Returns the id of ROW. */
+    private ObjectId objectIdAt(int row) {
+        ByteBuffer buf = buffer(row);
+        int off = offset(row);
+        return new ObjectId(buf.getLong(off), buf.getLong(off + 8),
+                            buf.getInt(off + 16));
+    }
+
+    /** Returns the buffer holding ROW. */
+    private ByteBuffer buffer(int row) {
+        load();
+        return row < _mapped ? _map : _added;
+    }
+
+    /** Returns the position of ROW in its buffer. */
+    private int offset(int row) {
+        return row < _mapped ? HEADER_LENGTH + row * ROW_LENGTH
+            : (row - _mapped) * ROW_LENGTH;
+    }
+
+    /** Maps the file of this graph, if it is not mapped, ignoring a
+     *  missing or unreadable file and any partial row at its end. */
+    private void load() {
+        if (_map != null) {
+            return;
+        }
+        _map = ByteBuffer.allocate(0);
+        _mapped = 0;
+        _added = ByteBuffer.allocate(ROW_LENGTH * 16);
+        if (!_file.isFile()) {
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(_file, "r")) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                return;
+            }
+            MappedByteBuffer map =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                return;
+            }
+            _map = map;
+            _mapped = (int) ((size - HEADER_LENGTH) / ROW_LENGTH);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
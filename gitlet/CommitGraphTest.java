@@ -0,0 +1,162 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of CommitGraph against brute-force searches of random
+ *  histories.
+ *  @author Harshaan Sall */
+public class CommitGraphTest {
+
+    /** Returns the name of a temporary file that does not yet exist,
+     *  and is deleted on exit. */
+    static File tempFile() {
+        try {
+            File file = File.createTempFile("graph", ".tmp");
+            file.delete();
+            file.deleteOnExit();
+            return file;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a new graph kept in a temporary file. */
+    static CommitGraph tempGraph() {
+        return new CommitGraph(tempFile());
+    }
+
+    /** Adds to GRAPH a random history of SIZE more commits drawn from
+     *  RAND, with a few roots and many merges, in which parents are
+     *  mostly recent commits. */
+    static void randomHistory(CommitGraph graph, Random rand, int size) {
+        int end = graph.size() + size;
+        for (int row = graph.size(); row < end; row += 1) {
+            int parent = -1;
+            int merge = -1;
+            if (row > 0 && rand.nextInt(20) != 0) {
+                parent = row - 1 - rand.nextInt(Math.min(row, 8));
+                if (rand.nextInt(4) == 0) {
+                    merge = rand.nextInt(row);
+                    if (merge == parent) {
+                        merge = -1;
+                    }
+                }
+            }
+            byte[] raw = new byte[ObjectId.BYTES];
+            rand.nextBytes(raw);
+            assertEquals(row, graph.add(ObjectId.toHex(raw), parent, merge,
+                                        rand.nextInt(1000)));
+        }
+    }
+
+    /** Returns the rows of every ancestor of each row of GRAPH,
+     *  including the row itself. */
+    static BitSet[] ancestors(CommitGraph graph) {
+        BitSet[] result = new BitSet[graph.size()];
+        for (int row = 0; row < result.length; row += 1) {
+            result[row] = new BitSet();
+            result[row].set(row);
+            for (int parent : new int[] {graph.parent(row),
+                                         graph.mergeParent(row)}) {
+                if (parent >= 0) {
+                    result[row].or(result[parent]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the best common ancestors of FIRST and SECOND, given the
+     *  ancestors ANC of every row: the common ancestors that are not an
+     *  ancestor of another. */
+    static HashSet<Integer> bruteMergeBases(BitSet[] anc, int first,
+                                            int second) {
+        BitSet common = (BitSet) anc[first].clone();
+        common.and(anc[second]);
+        HashSet<Integer> result = new HashSet<>();
+        for (int c = common.nextSetBit(0); c >= 0;
+             c = common.nextSetBit(c + 1)) {
+            boolean best = true;
+            for (int d = common.nextSetBit(0); d >= 0 && best;
+                 d = common.nextSetBit(d + 1)) {
+                best = d == c || !anc[d].get(c);
+            }
+            if (best) {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    /** mergeBases finds exactly the best common ancestors, newest
+     *  first, on random histories. */
+    @Test
+    public void mergeBasesMatchBruteForce() {
+        for (int seed = 0; seed < 20; seed += 1) {
+            Random rand = new Random(seed);
+            CommitGraph graph = tempGraph();
+            randomHistory(graph, rand, 150);
+            BitSet[] anc = ancestors(graph);
+            for (int pair = 0; pair < 300; pair += 1) {
+                int first = rand.nextInt(graph.size());
+                int second = rand.nextInt(graph.size());
+                List<Integer> bases = graph.mergeBases(first, second);
+                assertEquals(bruteMergeBases(anc, first, second),
+                             new HashSet<>(bases));
+                assertEquals(bases.size(), new HashSet<>(bases).size());
+                for (int i = 1; i < bases.size(); i += 1) {
+                    assertTrue(graph.generation(bases.get(i - 1))
+                               >= graph.generation(bases.get(i)));
+                }
+            }
+        }
+    }
+
+    /** isAncestor agrees with the brute-force ancestor sets. */
+    @Test
+    public void isAncestorMatchesBruteForce() {
+        Random rand = new Random(100);
+        CommitGraph graph = tempGraph();
+        randomHistory(graph, rand, 200);
+        BitSet[] anc = ancestors(graph);
+        for (int pair = 0; pair < 5000; pair += 1) {
+            int ancestor = rand.nextInt(graph.size());
+            int descendant = rand.nextInt(graph.size());
+            assertEquals(anc[descendant].get(ancestor),
+                         graph.isAncestor(ancestor, descendant));
+        }
+    }
+
+    /** Rows read back from the file as they were added, and adding a
+     *  commit already in the graph returns its row. */
+    @Test
+    public void flushAndReload() {
+        Random rand = new Random(200);
+        File file = tempFile();
+        CommitGraph graph = new CommitGraph(file);
+        randomHistory(graph, rand, 100);
+        graph.flush();
+        randomHistory(graph, rand, 50);
+        graph.flush();
+        CommitGraph copy = new CommitGraph(file);
+        assertEquals(graph.size(), copy.size());
+        for (int row = 0; row < graph.size(); row += 1) {
+            assertEquals(graph.idAt(row), copy.idAt(row));
+            assertEquals(row, copy.rowOf(graph.idAt(row)));
+            assertEquals(graph.parent(row), copy.parent(row));
+            assertEquals(graph.mergeParent(row), copy.mergeParent(row));
+            assertEquals(graph.generation(row), copy.generation(row));
+            assertEquals(graph.time(row), copy.time(row));
+            assertEquals(row, copy.add(graph.idAt(row), -1, -1, 0));
+        }
+        assertEquals(-1, copy.rowOf("0123"));
+    }
+}
@@ -0,0 +1,154 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** The compression applied to stored objects.  Every compressed stream
+ *  starts with one byte saying whether the rest is deflated or stored
+ *  as is, so objects written at any level can always be read back.
+ *  The level is taken from the system property gitlet.compression,
+ *  which may be a zlib level from 0 to 9 or "store"; any other value,
+ *  or none, means zlib's default level.  Level 0 still writes a zlib
+ *  stream, of uncompressed blocks; "store" writes the bytes alone,
+ *  which suits contents that are already compressed.
+ *  @author Harshaan Sall */
+public class Compression {
+
+    /** Name of the system property that sets the level. */
+    static final String PROPERTY = "gitlet.compression";
+
+    /** Level that stores data as is, without a zlib stream.  It is
+     *  none of the zlib levels, so that level 0 keeps its zlib meaning. */
+    static final int STORE = -2;
+
+    /** Header byte of stored data. */
+    private static final int STORED = 0;
+
+    /** Header byte of deflated data. */
+    private static final int DEFLATED = 1;
+
+    /** Size of the buffers used while streaming. */
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Level used when writing. */
+    private final int _level;
+
+    /** Constructor for a codec writing at LEVEL, which is STORE or a
+     *  zlib level. */
+    public Compression(int level) {
+        this._level = level;
+    }
+
+    /** Returns the codec configured by the gitlet.compression property.
+     * @return codec. */
+    public static Compression configured() {
+        String level = System.getProperty(PROPERTY, "");
+        if (level.equals("store")) {
+            return new Compression(STORE);
+        } else if (level.matches("[0-9]")) {
+            return new Compression(Integer.parseInt(level));
+        }
+        return new Compression(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /** Returns a stream that writes compressed data onto OUT.  Closing
+     *  it finishes the data and closes OUT.
+     * @param out o.
+     * @return stream.
+     * @throws IOException on failure. */
+    public OutputStream compress(OutputStream out) throws IOException {
+        if (_level == STORE) {
+            out.write(STORED);
+            return out;
+        }
+        out.write(DEFLATED);
+        Deflater deflater = new Deflater(_level);
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /** Returns a stream reading back the data that compress wrote onto
+     *  the stream IN.
+     * @param in i.
+     * @return stream.
+     * @throws IOException on failure. */
+    public static InputStream decompress(InputStream in) throws IOException {
+        int header = in.read();
+        if (header == STORED) {
+            return in;
+        } else if (header != DEFLATED) {
+            throw new IOException("unknown compression");
+        }
+        Inflater inflater = new Inflater();
+        return new InflaterInputStream(in, inflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    inflater.end();
+                }
+            }
+        };
+    }
+
+    /** Returns DATA compressed, as compress would write it.
+     * @param data d.
+     * @return bytes. */
+    public byte[] compress(byte[] data) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (OutputStream out = compress(result)) {
+            out.write(data);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return result.toByteArray();
+    }
+
+    /** Returns the SIZE bytes that DATA decompresses to.
+     * @param data d.
+     * @param size s.
+     * @return bytes. */
+    public static byte[] decompress(byte[] data, int size) {
+        if (data.length > 0 && data[0] == STORED) {
+            return Arrays.copyOfRange(data, 1, data.length);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+            byte[] result = new byte[size];
+            int done = 0;
+            while (done < size && !inflater.finished()) {
+                int n = inflater.inflate(result, done, size - done);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                done += n;
+            }
+            if (done != size) {
+                throw Utils.error("Corrupt compressed object.");
+            }
+            return result;
+        } catch (DataFormatException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+}
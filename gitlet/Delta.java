@@ -0,0 +1,131 @@
+package gitlet;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+/** Binary deltas between two byte arrays.  A delta is a sequence of
+ *  instructions that rebuild a target from a base: either copy a run
+ *  of bytes out of the base, or insert literal bytes carried in the
+ *  delta itself.  Every number is written as an unsigned varint.
+ *  @author Harshaan Sall */
+public class Delta {
+
+    /** Length of the blocks of the base that are indexed for matching. */
+    static final int BLOCK = 16;
+
+    /** Instruction tag for a literal insertion. */
+    private static final int INSERT = 0;
+
+    /** Instruction tag for a copy out of the base. */
+    private static final int COPY = 1;
+
+    /** Returns a delta that rebuilds TARGET from BASE. */
+    public static byte[] create(byte[] base, byte[] target) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeVarint(out, base.length);
+        writeVarint(out, target.length);
+        HashMap<Integer, Integer> blocks = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length; i += BLOCK) {
+            blocks.putIfAbsent(hash(base, i), i);
+        }
+        int literal = 0;
+        int i = 0;
+        while (i + BLOCK <= target.length) {
+            Integer at = blocks.get(hash(target, i));
+            int len = 0;
+            if (at != null) {
+                while (at + len < base.length && i + len < target.length
+                       && base[at + len] == target[i + len]) {
+                    len += 1;
+                }
+            }
+            if (len < BLOCK) {
+                i += 1;
+                continue;
+            }
+            int back = 0;
+            while (back < i - literal && back < at
+                   && base[at - back - 1] == target[i - back - 1]) {
+                back += 1;
+            }
+            writeInsert(out, target, literal, i - back);
+            out.write(COPY);
+            writeVarint(out, at - back);
+            writeVarint(out, len + back);
+            i += len;
+            literal = i;
+        }
+        writeInsert(out, target, literal, target.length);
+        return out.toByteArray();
+    }
+
+    /** Returns the target rebuilt by applying DELTA to BASE. */
+    public static byte[] apply(byte[] base, byte[] delta) {
+        int[] pos = { 0 };
+        if (readVarint(delta, pos) != base.length) {
+            throw Utils.error("Corrupt delta: base size mismatch.");
+        }
+        byte[] result = new byte[readVarint(delta, pos)];
+        int out = 0;
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]++];
+            if (op == COPY) {
+                int from = readVarint(delta, pos);
+                int len = readVarint(delta, pos);
+                System.arraycopy(base, from, result, out, len);
+                out += len;
+            } else {
+                int len = readVarint(delta, pos);
+                System.arraycopy(delta, pos[0], result, out, len);
+                pos[0] += len;
+                out += len;
+            }
+        }
+        if (out != result.length) {
+            throw Utils.error("Corrupt delta: target size mismatch.");
+        }
+        return result;
+    }
+
+    /** Writes an instruction inserting DATA[FROM..TO) onto OUT, if that
+     *  range is not empty. */
+    private static void writeInsert(ByteArrayOutputStream out, byte[] data,
+                                    int from, int to) {
+        if (to > from) {
+            out.write(INSERT);
+            writeVarint(out, to - from);
+            out.write(data, from, to - from);
+        }
+    }
+
+    /** Returns a hash of the BLOCK bytes of DATA starting at START. */
+    private static int hash(byte[] data, int start) {
+        int h = 0;
+        for (int k = start; k < start + BLOCK; k += 1) {
+            h = h * 31 + data[k];
+        }
+        return h;
+    }
+
+    /** Writes the non-negative VAL to OUT as an unsigned varint. */
+    static void writeVarint(ByteArrayOutputStream out, int val) {
+        while ((val & ~0x7f) != 0) {
+            out.write((val & 0x7f) | 0x80);
+            val >>>= 7;
+        }
+        out.write(val);
+    }
+
+    /** Reads an unsigned varint from DATA at POS[0], advancing POS[0]. */
+    static int readVarint(byte[] data, int[] pos) {
+        int val = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = data[pos[0]++] & 0xff;
+            val |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return val;
+    }
+}
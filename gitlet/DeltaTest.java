@@ -0,0 +1,98 @@
+package gitlet;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Round-trip tests of Delta.
+ *  @author Harshaan Sall */
+public class DeltaTest {
+
+    /** Returns LENGTH random bytes drawn from RAND. */
+    private static byte[] randomBytes(Random rand, int length) {
+        byte[] result = new byte[length];
+        rand.nextBytes(result);
+        return result;
+    }
+
+    /** Returns DATA with random runs deleted, replaced and inserted, in
+     *  EDITS places chosen by RAND. */
+    private static byte[] edit(Random rand, byte[] data, int edits) {
+        byte[] result = data;
+        for (int e = 0; e < edits && result.length > 0; e += 1) {
+            int at = rand.nextInt(result.length);
+            int cut = Math.min(rand.nextInt(40), result.length - at);
+            byte[] ins = randomBytes(rand, rand.nextInt(40));
+            byte[] next = new byte[result.length - cut + ins.length];
+            System.arraycopy(result, 0, next, 0, at);
+            System.arraycopy(ins, 0, next, at, ins.length);
+            System.arraycopy(result, at + cut, next, at + ins.length,
+                             result.length - at - cut);
+            result = next;
+        }
+        return result;
+    }
+
+    /** Checks that the delta from BASE to TARGET rebuilds TARGET, and
+     *  returns its length. */
+    private static int check(byte[] base, byte[] target) {
+        byte[] delta = Delta.create(base, target);
+        assertArrayEquals(target, Delta.apply(base, delta));
+        return delta.length;
+    }
+
+    /** Empty and short inputs, shorter than a block, rebuild. */
+    @Test
+    public void shortInputs() {
+        Random rand = new Random(1);
+        byte[] empty = new byte[0];
+        check(empty, empty);
+        check(empty, randomBytes(rand, 5));
+        check(randomBytes(rand, 5), empty);
+        for (int n = 0; n <= 2 * Delta.BLOCK + 1; n += 1) {
+            check(randomBytes(rand, n), randomBytes(rand, n));
+        }
+    }
+
+    /** Identical inputs give a delta far smaller than the target. */
+    @Test
+    public void identical() {
+        byte[] data = randomBytes(new Random(2), 10000);
+        assertTrue(check(data, data.clone()) < 100);
+    }
+
+    /** Edited copies of random data rebuild, and their deltas stay small
+     *  next to the data. */
+    @Test
+    public void edited() {
+        Random rand = new Random(3);
+        for (int trial = 0; trial < 200; trial += 1) {
+            byte[] base = randomBytes(rand, rand.nextInt(5000));
+            byte[] target = edit(rand, base, rand.nextInt(10));
+            int length = check(base, target);
+            if (base.length > 4000) {
+                assertTrue(length < base.length / 2);
+            }
+        }
+    }
+
+    /** Unrelated inputs and repetitive ones, whose blocks collide,
+     *  rebuild. */
+    @Test
+    public void unrelatedAndRepetitive() {
+        Random rand = new Random(4);
+        for (int trial = 0; trial < 50; trial += 1) {
+            check(randomBytes(rand, rand.nextInt(3000)),
+                  randomBytes(rand, rand.nextInt(3000)));
+        }
+        byte[] zeros = new byte[4096];
+        byte[] ones = new byte[5000];
+        Arrays.fill(ones, (byte) 1);
+        check(zeros, ones);
+        check(zeros, edit(rand, zeros, 5));
+        byte[] text = "abcabcabcabcabcabcabcabcabc\n".repeat(200).getBytes();
+        check(text, edit(rand, text, 8));
+    }
+}
@@ -0,0 +1,261 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/** The index, a cache of the blob id of each working file together
+ *  with the size, modification time and file key the file had when it
+ *  was hashed.  A file whose stat data still matches its entry is
+ *  known to be unchanged without being opened.  An entry whose
+ *  modification time is not older than the index itself is racy: the
+ *  file may have changed again within the same clock tick after it was
+ *  hashed, so it is hashed again.
+ *  @author Harshaan Sall */
+public class DirCache {
+
+    /** Magic number at the start of an index. */
+    private static final int MAGIC = 0x47444952;
+
+    /** Format version of the index. */
+    private static final int VERSION = 1;
+
+    /** File holding the index. */
+    private final File _file;
+
+    /** Directory the paths of the index are relative to. */
+    private final File _root;
+
+    /** Entries by path, read on first use. */
+    private TreeMap<String, Entry> _entries;
+
+    /** Modification time of the index file when it was read, in
+     *  nanoseconds. */
+    private long _written;
+
+    /** True if the entries differ from the index file. */
+    private boolean _dirty;
+
+    /** Constructor for the index in FILE of the files under ROOT. */
+    public DirCache(File file, File root) {
+        this._file = file;
+        this._root = root;
+    }
+
+    /** Returns the blob id of the working file NAME, or null if there
+     *  is no such file.  The file is hashed only if its stat data does
+     *  not match its entry.
+     * @param name path.
+     * @return blob id. */
+    public String idOf(String name) {
+        Entry stat = stat(Utils.join(_root, name));
+        if (stat == null) {
+            forget(name);
+            return null;
+        }
+        return idOf(name, stat);
+    }
+
+    /** Returns the blob id of the working file NAME, whose attributes
+     *  ATTRS were just read, hashing it only if they do not match its
+     *  entry.
+     * @param name path.
+     * @param attrs a.
+     * @return blob id. */
+    public String idOf(String name, BasicFileAttributes attrs) {
+        return idOf(name, entryOf(attrs));
+    }
+
+    /** Returns the blob id in the entry for the working file NAME if its
+     *  attributes ATTRS prove it unchanged, or null if it must be
+     *  hashed.
+     * @param name path.
+     * @param attrs a.
+     * @return blob id. */
+    public String cachedId(String name, BasicFileAttributes attrs) {
+        return cachedId(name, entryOf(attrs));
+    }
+
+    /** Records that the working file NAME had blob id ID when its
+     *  attributes were ATTRS.  ATTRS must have been read before the
+     *  file was hashed, so that a change made while hashing it is
+     *  caught later.
+     * @param name path.
+     * @param attrs a.
+     * @param id blob id. */
+    public void update(String name, BasicFileAttributes attrs, String id) {
+        put(name, entryOf(attrs), id);
+    }
+
+    /** Returns the blob id of the working file NAME with stat data STAT,
+     *  hashing the file if STAT does not match its entry. */
+    private String idOf(String name, Entry stat) {
+        String id = cachedId(name, stat);
+        if (id == null) {
+            id = Blob.idOf(Utils.join(_root, name));
+            put(name, stat, id);
+        }
+        return id;
+    }
+
+    /** Records that the working file NAME, as it is now, has blob id
+     *  ID.  Called after a command writes or hashes the file itself.
+     * @param name path.
+     * @param id blob id. */
+    public void update(String name, String id) {
+        Entry stat = stat(Utils.join(_root, name));
+        if (stat == null) {
+            forget(name);
+        } else {
+            put(name, stat, id);
+        }
+    }
+
+    /** Drops the entry for NAME, if any.
+     * @param name path. */
+    public void forget(String name) {
+        if (entries().remove(name) != null) {
+            _dirty = true;
+        }
+    }
+
+    /** Atomically rewrites the index file if any entry changed. */
+    public void write() {
+        if (!_dirty) {
+            return;
+        }
+        File tmp = new File(_file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(_entries.size());
+            for (Map.Entry<String, Entry> e : _entries.entrySet()) {
+                Entry entry = e.getValue();
+                out.writeUTF(e.getKey());
+                out.writeLong(entry._size);
+                out.writeLong(entry._mtime);
+                out.writeUTF(entry._key);
+                out.write(ObjectId.rawOf(entry._id));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), _file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _dirty = false;
+    }
+
+    /** Returns the id in the entry for NAME if STAT matches it and it
+     *  is not racy, or else null. */
+    private String cachedId(String name, Entry stat) {
+        Entry entry = entries().get(name);
+        if (entry == null || entry._size != stat._size
+            || entry._mtime != stat._mtime || !entry._key.equals(stat._key)
+            || entry._mtime >= _written) {
+            return null;
+        }
+        return entry._id;
+    }
+
+    /** Stores the entry STAT with blob id ID for NAME. */
+    private void put(String name, Entry stat, String id) {
+        entries().put(name, new Entry(stat._size, stat._mtime, stat._key,
+                                      id));
+        _dirty = true;
+    }
+
+    /** Returns the stat data of FILE, without a blob id, or null if
+     *  FILE is not a regular file. */
+    private static Entry stat(File file) {
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(file.toPath(),
+                    BasicFileAttributes.class);
+            return attrs.isRegularFile() ? entryOf(attrs) : null;
+        } catch (NoSuchFileException excp) {
+            return null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the stat data in ATTRS, without a blob id. */
+    private static Entry entryOf(BasicFileAttributes attrs) {
+        Object key = attrs.fileKey();
+        return new Entry(attrs.size(),
+                attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                key == null ? "" : key.toString(), null);
+    }
+
+    /** Returns the entries, reading the index file if needed. */
+    private TreeMap<String, Entry> entries() {
+        if (_entries != null) {
+            return _entries;
+        }
+        _entries = new TreeMap<>();
+        if (!_file.isFile()) {
+            return _entries;
+        }
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(_file)))) {
+            _written = Files.getLastModifiedTime(_file.toPath())
+                .to(TimeUnit.NANOSECONDS);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw Utils.error("Corrupt index.");
+            }
+            byte[] raw = new byte[Utils.UID_LENGTH / 2];
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String name = in.readUTF();
+                long size = in.readLong();
+                long mtime = in.readLong();
+                String key = in.readUTF();
+                in.readFully(raw);
+                _entries.put(name,
+                        new Entry(size, mtime, key, ObjectId.toHex(raw)));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return _entries;
+    }
+
+    /** The stat data and blob id of one working file. */
+    private static class Entry {
+        /** Size in bytes. */
+        private final long _size;
+
+        /** Modification time in nanoseconds. */
+        private final long _mtime;
+
+        /** File key, such as the device and inode, or "". */
+        private final String _key;
+
+        /** Blob id. */
+        private final String _id;
+
+        /** Constructor for an entry with SIZE, MTIME, KEY and ID. */
+        Entry(long size, long mtime, String key, String id) {
+            this._size = size;
+            this._mtime = mtime;
+            this._key = key;
+            this._id = id;
+        }
+    }
+}
@@ -0,0 +1,442 @@
+package gitlet;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/** An immutable map, kept as a hash array mapped trie.  Each node
+ *  holds a 32-bit bitmap saying which of 32 slots, indexed by 5 bits of
+ *  the key's hash, are in use, and an array of just the slots in use,
+ *  each an entry, a node one level down, or, once the hash runs out, a
+ *  list of entries whose hashes collide.  Adding or removing a key
+ *  copies only the nodes on the path to it, so the new map shares every
+ *  other node with the old one.  Lookups read one node per 5 bits of
+ *  hash.  The Map methods that would change the map throw.
+ *  @author Harshaan Sall */
+public final class Hamt<K, V> extends AbstractMap<K, V> {
+
+    /** Number of hash bits consumed at each level. */
+    private static final int BITS = 5;
+
+    /** Mask selecting BITS bits. */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /** Largest shift at which a node still indexes by hash. */
+    private static final int MAX_SHIFT = 30;
+
+    /** The empty map. */
+    @SuppressWarnings("rawtypes")
+    private static final Hamt EMPTY = new Hamt<>(null, 0);
+
+    /** Root: a Node, or null if the map is empty. */
+    private final Node _root;
+
+    /** Number of entries. */
+    private final int _size;
+
+    /** Constructor for a map of SIZE entries under ROOT. */
+    private Hamt(Node root, int size) {
+        this._root = root;
+        this._size = size;
+    }
+
+    /** Returns the empty map.
+     * @param <K> key type.
+     * @param <V> value type.
+     * @return map. */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Hamt<K, V> empty() {
+        return (Hamt<K, V>) EMPTY;
+    }
+
+    /** Returns this map with KEY mapped to VAL.
+     * @param key k.
+     * @param val v.
+     * @return map. */
+    public Hamt<K, V> plus(K key, V val) {
+        Leaf leaf = new Leaf(key, val);
+        if (_root == null) {
+            return new Hamt<>(new Node(bit(leaf._hash, 0),
+                                       new Object[] {leaf}), 1);
+        }
+        int[] added = {0};
+        Node root = (Node) plus(_root, 0, leaf, added);
+        return root == _root ? this : new Hamt<>(root, _size + added[0]);
+    }
+
+    /** Returns this map with every entry of ENTRIES added, replacing any
+     *  mapping of the same key.
+     * @param entries e.
+     * @return map. */
+    public Hamt<K, V> plusAll(Map<? extends K, ? extends V> entries) {
+        Hamt<K, V> result = this;
+        for (Map.Entry<? extends K, ? extends V> e : entries.entrySet()) {
+            result = result.plus(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /** Returns this map without KEY.
+     * @param key k.
+     * @return map. */
+    public Hamt<K, V> minus(Object key) {
+        if (_root == null) {
+            return this;
+        }
+        Object root = minus(_root, 0, key, hash(key));
+        if (root == _root) {
+            return this;
+        } else if (root == null) {
+            return empty();
+        } else if (!(root instanceof Node)) {
+            root = new Node(bit(hashOf(root), 0), new Object[] {root});
+        }
+        return new Hamt<>((Node) root, _size - 1);
+    }
+
+    /** Returns this map without any of KEYS.
+     * @param keys k.
+     * @return map. */
+    public Hamt<K, V> minusAll(Collection<?> keys) {
+        Hamt<K, V> result = this;
+        for (Object key : keys) {
+            result = result.minus(key);
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return _size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return find(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Leaf leaf = find(key);
+        return leaf == null ? null : (V) leaf.getValue();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new AbstractSet<Map.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return _size;
+            }
+
+            @Override
+            public Iterator<Map.Entry<K, V>> iterator() {
+                return new Entries();
+            }
+        };
+    }
+
+    /** Returns the entry for KEY, or null if there is none. */
+    private Leaf find(Object key) {
+        int hash = hash(key);
+        Object slot = _root;
+        for (int shift = 0; slot instanceof Node; shift += BITS) {
+            Node node = (Node) slot;
+            int bit = bit(hash, shift);
+            if ((node._bitmap & bit) == 0) {
+                return null;
+            }
+            slot = node._slots[node.index(bit)];
+        }
+        if (slot instanceof Leaf) {
+            Leaf leaf = (Leaf) slot;
+            return leaf.matches(key, hash) ? leaf : null;
+        } else if (slot != null) {
+            for (Leaf leaf : ((Collision) slot)._leaves) {
+                if (leaf.matches(key, hash)) {
+                    return leaf;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Returns SLOT, found at SHIFT, with LEAF added, adding 1 to
+     *  ADDED[0] if LEAF's key was not there before.  Returns SLOT itself
+     *  if nothing changed. */
+    private Object plus(Object slot, int shift, Leaf leaf, int[] added) {
+        if (slot instanceof Node) {
+            Node node = (Node) slot;
+            int bit = bit(leaf._hash, shift);
+            int index = node.index(bit);
+            if ((node._bitmap & bit) == 0) {
+                added[0] += 1;
+                return node.inserted(bit, index, leaf);
+            }
+            Object old = node._slots[index];
+            Object sub = plus(old, shift + BITS, leaf, added);
+            return sub == old ? node : node.replaced(index, sub);
+        } else if (slot instanceof Leaf) {
+            Leaf old = (Leaf) slot;
+            if (old.matches(leaf.getKey(), leaf._hash)) {
+                return old.getValue() == leaf.getValue() ? old : leaf;
+            }
+            added[0] += 1;
+            return pair(old, leaf, shift);
+        }
+        Collision coll = (Collision) slot;
+        if (coll._hash != leaf._hash) {
+            added[0] += 1;
+            return pair(coll, leaf, shift);
+        }
+        Leaf[] leaves = coll._leaves;
+        for (int i = 0; i < leaves.length; i += 1) {
+            if (leaves[i].matches(leaf.getKey(), leaf._hash)) {
+                if (leaves[i].getValue() == leaf.getValue()) {
+                    return coll;
+                }
+                leaves = leaves.clone();
+                leaves[i] = leaf;
+                return new Collision(leaf._hash, leaves);
+            }
+        }
+        added[0] += 1;
+        leaves = Arrays.copyOf(leaves, leaves.length + 1);
+        leaves[leaves.length - 1] = leaf;
+        return new Collision(leaf._hash, leaves);
+    }
+
+    /** Returns the slot, at SHIFT, holding both OLD, an entry or a
+     *  collision, and the entry LEAF, whose hash differs from OLD's or
+     *  whose key does. */
+    private Object pair(Object old, Leaf leaf, int shift) {
+        int oldHash = hashOf(old);
+        if (shift > MAX_SHIFT) {
+            return new Collision(leaf._hash, new Leaf[] {(Leaf) old, leaf});
+        }
+        int oldBit = bit(oldHash, shift);
+        int newBit = bit(leaf._hash, shift);
+        if (oldBit == newBit) {
+            return new Node(oldBit,
+                    new Object[] {pair(old, leaf, shift + BITS)});
+        } else if (Integer.compareUnsigned(oldBit, newBit) < 0) {
+            return new Node(oldBit | newBit, new Object[] {old, leaf});
+        } else {
+            return new Node(oldBit | newBit, new Object[] {leaf, old});
+        }
+    }
+
+    /** Returns SLOT, found at SHIFT, without KEY, whose hash is HASH:
+     *  SLOT itself if KEY is not there, null if nothing is left, or a
+     *  lone entry or collision for the caller to hold directly. */
+    private Object minus(Object slot, int shift, Object key, int hash) {
+        if (slot instanceof Leaf) {
+            return ((Leaf) slot).matches(key, hash) ? null : slot;
+        } else if (slot instanceof Collision) {
+            Leaf[] leaves = ((Collision) slot)._leaves;
+            for (int i = 0; i < leaves.length; i += 1) {
+                if (leaves[i].matches(key, hash)) {
+                    if (leaves.length == 2) {
+                        return leaves[1 - i];
+                    }
+                    Leaf[] rest = new Leaf[leaves.length - 1];
+                    System.arraycopy(leaves, 0, rest, 0, i);
+                    System.arraycopy(leaves, i + 1, rest, i, rest.length - i);
+                    return new Collision(hash, rest);
+                }
+            }
+            return slot;
+        }
+        Node node = (Node) slot;
+        int bit = bit(hash, shift);
+        if ((node._bitmap & bit) == 0) {
+            return node;
+        }
+        int index = node.index(bit);
+        Object old = node._slots[index];
+        Object sub = minus(old, shift + BITS, key, hash);
+        if (sub == old) {
+            return node;
+        } else if (sub == null) {
+            if (node._slots.length == 1) {
+                return null;
+            }
+            Node rest = node.removed(bit, index);
+            return rest._slots.length == 1 && !(rest._slots[0] instanceof Node)
+                ? rest._slots[0] : rest;
+        } else if (node._slots.length == 1 && !(sub instanceof Node)) {
+            return sub;
+        }
+        return node.replaced(index, sub);
+    }
+
+    /** Returns the hash of KEY, spread so that its high bits count. */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns the hash of the entries in SLOT, an entry or a
+     *  collision. */
+    private static int hashOf(Object slot) {
+        return slot instanceof Leaf ? ((Leaf) slot)._hash
+            : ((Collision) slot)._hash;
+    }
+
+    /** Returns the bit selecting the slot for HASH at SHIFT. */
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /** A node of the trie. */
+    private static final class Node {
+        /** Which of the 32 slots are in use. */
+        private final int _bitmap;
+
+        /** The slots in use, in order of their bits. */
+        private final Object[] _slots;
+
+        /** Constructor for a node with BITMAP and SLOTS. */
+        Node(int bitmap, Object[] slots) {
+            this._bitmap = bitmap;
+            this._slots = slots;
+        }
+
+        /** Returns the index in the slots of the slot for BIT. */
+        int index(int bit) {
+            return Integer.bitCount(_bitmap & (bit - 1));
+        }
+
+        /** Returns this node with SLOT added for BIT at INDEX. */
+        Node inserted(int bit, int index, Object slot) {
+            Object[] slots = new Object[_slots.length + 1];
+            System.arraycopy(_slots, 0, slots, 0, index);
+            slots[index] = slot;
+            System.arraycopy(_slots, index, slots, index + 1,
+                             _slots.length - index);
+            return new Node(_bitmap | bit, slots);
+        }
+
+        /** Returns this node with the slot at INDEX replaced by SLOT. */
+        Node replaced(int index, Object slot) {
+            Object[] slots = _slots.clone();
+            slots[index] = slot;
+            return new Node(_bitmap, slots);
+        }
+
+        /** Returns this node without the slot for BIT, at INDEX. */
+        Node removed(int bit, int index) {
+            Object[] slots = new Object[_slots.length - 1];
+            System.arraycopy(_slots, 0, slots, 0, index);
+            System.arraycopy(_slots, index + 1, slots, index,
+                             slots.length - index);
+            return new Node(_bitmap & ~bit, slots);
+        }
+    }
+
+    /** Entries whose keys have the same hash. */
+    private static final class Collision {
+        /** The hash. */
+        private final int _hash;
+
+        /** The entries. */
+        private final Leaf[] _leaves;
+
+        /** Constructor for the entries LEAVES, all with HASH. */
+        Collision(int hash, Leaf[] leaves) {
+            this._hash = hash;
+            this._leaves = leaves;
+        }
+    }
+
+    /** An entry. */
+    private static final class Leaf
+        extends SimpleImmutableEntry<Object, Object> {
+        /** Version of this class, as a SimpleImmutableEntry is
+         *  serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** Hash of the key. */
+        private final int _hash;
+
+        /** Constructor for the entry mapping KEY to VAL. */
+        Leaf(Object key, Object val) {
+            super(key, val);
+            this._hash = hash(key);
+        }
+
+        /** Returns true if this is the entry for KEY, whose hash is
+         *  HASH. */
+        boolean matches(Object key, int hash) {
+            return _hash == hash && getKey().equals(key);
+        }
+    }
+
+    /** Iterator over the entries, walking the trie depth first. */
+    private final class Entries implements Iterator<Map.Entry<K, V>> {
+        /** Slot arrays being walked, innermost last. */
+        private final ArrayDeque<Object[]> _arrays = new ArrayDeque<>();
+
+        /** Position reached in each array of _arrays. */
+        private final ArrayDeque<Integer> _positions = new ArrayDeque<>();
+
+        /** Next entry, or null at the end. */
+        private Leaf _next;
+
+        /** Constructor for an iterator starting at the first entry. */
+        Entries() {
+            if (_root != null) {
+                _arrays.push(_root._slots);
+                _positions.push(0);
+            }
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (_next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf result = _next;
+            advance();
+            return (Map.Entry<K, V>) (Map.Entry<?, ?>) result;
+        }
+
+        /** Moves _next to the following entry. */
+        private void advance() {
+            _next = null;
+            while (_next == null && !_arrays.isEmpty()) {
+                Object[] slots = _arrays.peek();
+                int pos = _positions.pop();
+                if (pos == slots.length) {
+                    _arrays.pop();
+                    continue;
+                }
+                _positions.push(pos + 1);
+                Object slot = slots[pos];
+                if (slot instanceof Node) {
+                    _arrays.push(((Node) slot)._slots);
+                    _positions.push(0);
+                } else if (slot instanceof Collision) {
+                    _arrays.push(((Collision) slot)._leaves);
+                    _positions.push(0);
+                } else {
+                    _next = (Leaf) slot;
+                }
+            }
+        }
+    }
+}
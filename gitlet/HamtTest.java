@@ -0,0 +1,140 @@
+package gitlet;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of Hamt against a HashMap holding the same entries.
+ *  @author Harshaan Sall */
+public class HamtTest {
+
+    /** A key whose hash code is chosen, so that tests can make keys
+     *  collide in some or all of their hash bits. */
+    private static final class Key {
+        /** Name, which alone decides equality. */
+        private final String _name;
+
+        /** Hash code. */
+        private final int _hash;
+
+        /** Constructor for the key NAME with hash code HASH. */
+        Key(String name, int hash) {
+            this._name = name;
+            this._hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj)._name.equals(_name);
+        }
+
+        @Override
+        public int hashCode() {
+            return _hash;
+        }
+
+        @Override
+        public String toString() {
+            return _name;
+        }
+    }
+
+    /** Checks that MAP holds exactly the entries of EXPECTED. */
+    private static <K, V> void check(Map<K, V> expected, Hamt<K, V> map) {
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+        assertEquals(expected.hashCode(), map.hashCode());
+        int count = 0;
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            assertEquals(entry.getValue(), expected.get(entry.getKey()));
+            count += 1;
+        }
+        assertEquals(expected.size(), count);
+        for (K key : expected.keySet()) {
+            assertTrue(map.containsKey(key));
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    /** Random additions, replacements and removals of keys drawn from
+     *  KEYS leave the map as they leave a HashMap, and never change an
+     *  earlier version. */
+    private static void randomOps(List<Key> keys, long seed) {
+        Random rand = new Random(seed);
+        HashMap<Key, Integer> expected = new HashMap<>();
+        Hamt<Key, Integer> map = Hamt.empty();
+        List<HashMap<Key, Integer>> oldExpected = new ArrayList<>();
+        List<Hamt<Key, Integer>> oldMaps = new ArrayList<>();
+        for (int op = 0; op < 4000; op += 1) {
+            Key key = keys.get(rand.nextInt(keys.size()));
+            if (rand.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                int val = rand.nextInt(100);
+                expected.put(key, val);
+                map = map.plus(key, val);
+            }
+            assertEquals(expected.get(key), map.get(key));
+            if (op % 200 == 0) {
+                oldExpected.add(new HashMap<>(expected));
+                oldMaps.add(map);
+            }
+        }
+        check(expected, map);
+        for (int i = 0; i < oldMaps.size(); i += 1) {
+            check(oldExpected.get(i), oldMaps.get(i));
+        }
+        map = map.minusAll(new ArrayList<>(expected.keySet()));
+        check(new HashMap<>(), map);
+    }
+
+    /** Keys with well spread hash codes. */
+    @Test
+    public void spreadKeys() {
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 500; i += 1) {
+            String name = "file" + i;
+            keys.add(new Key(name, name.hashCode()));
+        }
+        randomOps(keys, 1);
+    }
+
+    /** Keys sharing their low hash bits, so that paths run deep, and
+     *  keys whose hash codes are all equal, so that they collide past
+     *  the last level. */
+    @Test
+    public void collidingKeys() {
+        List<Key> keys = new ArrayList<>();
+        for (int i = 0; i < 100; i += 1) {
+            keys.add(new Key("deep" + i, i << 25));
+            keys.add(new Key("same" + i, 0x12345678));
+            keys.add(new Key("pair" + i, i % 2 == 0 ? -1 : 0x7fffffff));
+        }
+        randomOps(keys, 2);
+    }
+
+    /** plusAll adds every entry of a map, replacing existing ones, and
+     *  the Map methods that would change a Hamt throw. */
+    @Test
+    public void plusAllAndImmutable() {
+        HashMap<String, String> files = new HashMap<>();
+        for (int i = 0; i < 300; i += 1) {
+            files.put("dir/" + i, "blob" + i);
+        }
+        Hamt<String, String> map = Hamt.<String, String>empty()
+            .plus("dir/0", "old").plusAll(files);
+        check(files, map);
+        try {
+            map.put("x", "y");
+            fail("put changed a Hamt");
+        } catch (UnsupportedOperationException excp) {
+            assertFalse(map.containsKey("x"));
+        }
+    }
+}
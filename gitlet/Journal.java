@@ -0,0 +1,261 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/** An append-only write-ahead journal of changes to the repository
+ *  state.  Each record names one small change (staging a file, making
+ *  a commit, moving a ref, ...) and carries a sequence number.  Records
+ *  are framed by their length and a CRC32, so a record torn by a crash
+ *  is detected and dropped when the journal is next read.  The
+ *  repository state is rebuilt by replaying, on top of a checkpoint,
+ *  every record newer than that checkpoint.
+ *  @author Harshaan Sall */
+public class Journal {
+
+    /** Magic number at the start of a journal. */
+    private static final int MAGIC = 0x474a4e4c;
+
+    /** Length of the journal header: magic and base sequence number. */
+    private static final int HEADER_LENGTH = 12;
+
+    /** File holding the journal. */
+    private final File _file;
+
+    /** Sequence number of the last record written or read. */
+    private long _lastSeq;
+
+    /** Records appended since the last sync, not yet forced to disk. */
+    private boolean _unsynced;
+
+    /** Open handle used for appending, opened on first append. */
+    private FileOutputStream _out;
+
+    /** Number of records in the journal. */
+    private int _size;
+
+    /** Constructor for the journal in FILE. */
+    public Journal(File file) {
+        this._file = file;
+    }
+
+    /** Creates an empty journal whose first record will follow the
+     *  sequence number BASESEQ, atomically replacing any existing one.
+     * @param baseSeq seq. */
+    public void create(long baseSeq) {
+        close();
+        File tmp = new File(_file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeLong(baseSeq);
+            data.flush();
+            out.getChannel().force(true);
+            Files.move(tmp.toPath(), _file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _lastSeq = baseSeq;
+        _size = 0;
+    }
+
+    /** Returns every intact record of the journal in order.  A torn or
+     *  corrupt tail is cut off so that later appends follow the last
+     *  good record.
+     * @return records. */
+    public List<Record> read() {
+        List<Record> result = new ArrayList<>();
+        long good = HEADER_LENGTH;
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(_file)))) {
+            if (in.readInt() != MAGIC) {
+                throw Utils.error("Corrupt journal.");
+            }
+            _lastSeq = in.readLong();
+            long total = _file.length();
+            while (true) {
+                int length = in.readInt();
+                if (length < 0 || good + 4 + length + 4 > total) {
+                    break;
+                }
+                byte[] body = new byte[length];
+                in.readFully(body);
+                CRC32 crc = new CRC32();
+                crc.update(body);
+                if (in.readInt() != (int) crc.getValue()) {
+                    break;
+                }
+                Record rec = Record.decode(body);
+                result.add(rec);
+                _lastSeq = rec.getSeq();
+                good += 4 + length + 4;
+            }
+        } catch (EOFException excp) {
+            /* End of the intact records. */
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (good < _file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(_file, "rw")) {
+                raf.setLength(good);
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        }
+        _size = result.size();
+        return result;
+    }
+
+    /** Appends a record of change TYPE with arguments ARGS, numbered
+     *  after the last record.  The record is not forced to disk until
+     *  the next sync.
+     * @param type type.
+     * @param args args.
+     * @return the record. */
+    public Record append(String type, String... args) {
+        Record rec = new Record(_lastSeq + 1, type, args);
+        byte[] body = rec.encode();
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        try {
+            if (_out == null) {
+                _out = new FileOutputStream(_file, true);
+            }
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            DataOutputStream data = new DataOutputStream(frame);
+            data.writeInt(body.length);
+            data.write(body);
+            data.writeInt((int) crc.getValue());
+            _out.write(frame.toByteArray());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _lastSeq = rec.getSeq();
+        _size += 1;
+        _unsynced = true;
+        return rec;
+    }
+
+    /** Forces every appended record to disk. */
+    public void sync() {
+        if (!_unsynced) {
+            return;
+        }
+        try {
+            _out.getChannel().force(false);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _unsynced = false;
+    }
+
+    /** Getter for the sequence number of the last record.
+     * @return seq. */
+    public long getLastSeq() {
+        return _lastSeq;
+    }
+
+    /** Getter for the number of records in the journal.
+     * @return size. */
+    public int size() {
+        return _size;
+    }
+
+    /** Releases the handle used for appending, syncing first. */
+    public void close() {
+        sync();
+        try {
+            if (_out != null) {
+                _out.close();
+                _out = null;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** One change to the repository state. */
+    public static class Record {
+
+        /** Sequence number. */
+        private final long _seq;
+
+        /** Kind of change. */
+        private final String _type;
+
+        /** Arguments of the change. */
+        private final String[] _args;
+
+        /** Constructor for record SEQ of change TYPE with ARGS. */
+        Record(long seq, String type, String... args) {
+            this._seq = seq;
+            this._type = type;
+            this._args = args;
+        }
+
+        /** Getter for sequence number.
+         * @return seq. */
+        public long getSeq() {
+            return this._seq;
+        }
+
+        /** Getter for kind of change.
+         * @return type. */
+        public String getType() {
+            return this._type;
+        }
+
+        /** Getter for argument K.
+         * @param k index.
+         * @return arg. */
+        public String getArg(int k) {
+            return this._args[k];
+        }
+
+        /** Returns the body of this record as written in a journal. */
+        byte[] encode() {
+            ByteArrayOutputStream result = new ByteArrayOutputStream();
+            try {
+                DataOutputStream out = new DataOutputStream(result);
+                out.writeLong(_seq);
+                out.writeUTF(_type);
+                out.writeShort(_args.length);
+                for (String arg : _args) {
+                    out.writeUTF(arg);
+                }
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            return result.toByteArray();
+        }
+
+        /** Returns the record whose body is BODY. */
+        static Record decode(byte[] body) throws IOException {
+            DataInputStream in = new DataInputStream(
+                    new ByteArrayInputStream(body));
+            long seq = in.readLong();
+            String type = in.readUTF();
+            String[] args = new String[in.readShort()];
+            for (int i = 0; i < args.length; i += 1) {
+                args[i] = in.readUTF();
+            }
+            return new Record(seq, type, args);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package gitlet;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+
+/** Reader for state and objects written with Java serialization by
+ *  earlier versions of gitlet, so that existing repositories can be
+ *  migrated to the formats of Codec.  The classes those versions
+ *  serialized no longer exist in that shape, so each is read into a
+ *  stand-in class below with the same fields.
+ *  @author Harshaan Sall */
+public class LegacyFormat {
+
+    /** First two bytes of every Java serialization stream. */
+    private static final int STREAM_MAGIC = 0xaced;
+
+    /** Stand-ins for the classes named in legacy streams. */
+    private static final Map<String, Class<?>> STAND_INS = Map.of(
+        "gitlet.Commit", LegacyCommit.class,
+        "gitlet.Blob", LegacyBlob.class,
+        "gitlet.Branch", LegacyBranch.class,
+        "gitlet.Checkpoint", LegacyCheckpoint.class);
+
+    /** Returns true if FILE exists and holds a Java serialization
+     *  stream.
+     * @param file file.
+     * @return bool. */
+    public static boolean detect(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return (in.read() << 8 | in.read()) == STREAM_MAGIC;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the object serialized in FILE.
+     * @param file file.
+     * @return object. */
+    public static Object read(File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return read(in);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the object serialized in DATA.
+     * @param data bytes.
+     * @return object. */
+    public static Object read(byte[] data) {
+        return read(new ByteArrayInputStream(data));
+    }
+
+    /** Returns the object serialized on IN, with the legacy classes
+     *  replaced by their stand-ins. */
+    private static Object read(InputStream in) {
+        try {
+            return new ObjectInputStream(in) {
+                @Override
+                protected ObjectStreamClass readClassDescriptor()
+                    throws IOException, ClassNotFoundException {
+                    ObjectStreamClass desc = super.readClassDescriptor();
+                    Class<?> standIn = STAND_INS.get(desc.getName());
+                    return standIn == null
+                        ? desc : ObjectStreamClass.lookup(standIn);
+                }
+            }.readObject();
+        } catch (IOException | ClassNotFoundException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns FILES, a legacy map of file names to blobs or blob ids,
+     *  as a map of file names to blob ids, storing the contents of any
+     *  blobs in STORE.
+     * @param files files.
+     * @param store store.
+     * @return files. */
+    public static HashMap<String, String> toFiles(Map<?, ?> files,
+                                                  ObjectStore store) {
+        HashMap<String, String> result = new HashMap<>();
+        for (Map.Entry<?, ?> entry : files.entrySet()) {
+            Object val = entry.getValue();
+            if (val instanceof LegacyBlob) {
+                byte[] contents = ((LegacyBlob) val)._inside
+                    .getBytes(StandardCharsets.UTF_8);
+                val = store.putBlob(contents);
+            }
+            result.put((String) entry.getKey(), (String) val);
+        }
+        return result;
+    }
+
+    /** Returns BRANCHES, a legacy map of names to branches, in the
+     *  current form.
+     * @param branches branches.
+     * @return branches. */
+    public static HashMap<String, Branch> toBranches(Map<?, ?> branches) {
+        HashMap<String, Branch> result = new HashMap<>();
+        for (Map.Entry<?, ?> entry : branches.entrySet()) {
+            LegacyBranch br = (LegacyBranch) entry.getValue();
+            result.put((String) entry.getKey(),
+                       new Branch(br._commitID));
+        }
+        return result;
+    }
+
+    /** A commit as earlier versions serialized it. */
+    static class LegacyCommit implements Serializable {
+        /** Message. */
+        private String _message;
+
+        /** Timestamp. */
+        private String _timestamp;
+
+        /** Parent. */
+        private String _commitParent;
+
+        /** Files, mapping names to blobs or to blob ids. */
+        private HashMap<String, Object> _files;
+
+        /** ID. */
+        private String uniqueID;
+
+        /** Returns this commit in the current form, storing the
+         *  contents of any of its blobs in STORE. */
+        Commit toCommit(ObjectStore store) {
+            Commit com = new Commit(_message, _timestamp,
+                    Tree.of(toFiles(_files, store)), _commitParent, null);
+            com.setUniqueID();
+            return com;
+        }
+    }
+
+    /** A blob as earlier versions serialized it. */
+    static class LegacyBlob implements Serializable {
+        /** Name. */
+        private String _blobName;
+
+        /** Contents. */
+        private String _inside;
+    }
+
+    /** A branch as earlier versions serialized it. */
+    static class LegacyBranch implements Serializable {
+        /** Pointer. */
+        private String _commitID;
+
+        /** History. */
+        private LinkedList<String> _allCommits;
+    }
+
+    /** A checkpoint as earlier versions serialized it. */
+    static class LegacyCheckpoint implements Serializable {
+        /** Sequence number. */
+        private long _seq;
+
+        /** Value. */
+        private Serializable _value;
+
+        /** Getter for sequence number.
+         * @return seq. */
+        long getSeq() {
+            return _seq;
+        }
+
+        /** Getter for value.
+         * @return value. */
+        Serializable getValue() {
+            return _value;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package gitlet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/** The options of log and global-log: how many commits to show and to
+ *  skip, whether to show each on one line, and the window of commit
+ *  times to show them from.
+ *  @author Harshaan Sall */
+public class LogOptions {
+
+    /** Options whose value may be given as the next argument, with the
+     *  text that joins them to it when they are written as one. */
+    private static final Map<String, String> SEPARATE_VALUES = Map.of(
+        "-n", "-n", "--max-count", "--max-count=", "--skip", "--skip=",
+        "--since", "--since=", "--until", "--until=");
+
+    /** Most commits to show. */
+    private long _limit = Long.MAX_VALUE;
+
+    /** Commits to pass over before showing any. */
+    private long _skip;
+
+    /** Whether to show each commit on one line. */
+    private boolean _oneline;
+
+    /** Earliest commit time shown, in milliseconds since the epoch. */
+    private long _since = Long.MIN_VALUE;
+
+    /** Latest commit time shown, in milliseconds since the epoch. */
+    private long _until = Long.MAX_VALUE;
+
+    /** Returns the options given by ARGS, or null if they are not valid.
+     *  ARGS may hold -n COUNT or --max-count=COUNT, --skip=COUNT,
+     *  --oneline, --since=DATE and --until=DATE, where each value may
+     *  also be the next argument, as in --skip COUNT.  A DATE is
+     *  yyyy-MM-dd, optionally followed by a space or T and HH:mm or
+     *  HH:mm:ss, in the local zone; --until with only a day includes
+     *  the whole of it.
+     * @param args a.
+     * @return options. */
+    public static LogOptions parse(String... args) {
+        LogOptions result = new LogOptions();
+        try {
+            for (int i = 0; i < args.length; i += 1) {
+                String arg = args[i];
+                if (SEPARATE_VALUES.containsKey(arg)
+                        && i + 1 < args.length) {
+                    i += 1;
+                    arg = SEPARATE_VALUES.get(arg) + args[i];
+                }
+                if (arg.equals("--oneline")) {
+                    result._oneline = true;
+                } else if (arg.matches("(-n|--max-count=)[0-9]{1,18}")) {
+                    result._limit = Long.parseLong(arg.replaceAll("\\D", ""));
+                } else if (arg.matches("--skip=[0-9]{1,18}")) {
+                    result._skip = Long.parseLong(arg.substring(7));
+                } else if (arg.startsWith("--since=")) {
+                    result._since = parseTime(arg.substring(8), false);
+                } else if (arg.startsWith("--until=")) {
+                    result._until = parseTime(arg.substring(8), true);
+                } else {
+                    return null;
+                }
+            }
+        } catch (DateTimeParseException excp) {
+            return null;
+        }
+        return result;
+    }
+
+    /** Returns DATE in milliseconds since the epoch, taking a day alone
+     *  as its first moment, or if END, its last. */
+    private static long parseTime(String date, boolean end) {
+        ZoneId zone = ZoneId.systemDefault();
+        if (date.length() == "yyyy-MM-dd".length()) {
+            LocalDate day = LocalDate.parse(date);
+            if (end) {
+                day = day.plusDays(1);
+            }
+            long start = day.atStartOfDay(zone).toInstant().toEpochMilli();
+            return end ? start - 1 : start;
+        }
+        return LocalDateTime.parse(date.replace(' ', 'T')).atZone(zone)
+            .toInstant().toEpochMilli();
+    }
+
+    /** Getter for limit.
+     * @return limit. */
+    public long getLimit() {
+        return this._limit;
+    }
+
+    /** Getter for skip.
+     * @return skip. */
+    public long getSkip() {
+        return this._skip;
+    }
+
+    /** Getter for oneline.
+     * @return oneline. */
+    public boolean isOneline() {
+        return this._oneline;
+    }
+
+    /** Getter for since.
+     * @return since. */
+    public long getSince() {
+        return this._since;
+    }
+
+    /** Getter for until.
+     * @return until. */
+    public long getUntil() {
+        return this._until;
+    }
+
+    /** Returns true if only commits from a window of time are shown.
+     * @return bool. */
+    public boolean isWindowed() {
+        return _since != Long.MIN_VALUE || _until != Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,80 @@
+package gitlet;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of the parsing of the options of log and global-log.
+ *  @author Harshaan Sall */
+public class LogOptionsTest {
+
+    /** Returns the time TEXT, as LocalDateTime parses it, in milliseconds
+     *  since the epoch in the local zone. */
+    private static long millis(String text) {
+        return LocalDateTime.parse(text).atZone(ZoneId.systemDefault())
+            .toInstant().toEpochMilli();
+    }
+
+    /** No options show every commit, in full, at any time. */
+    @Test
+    public void defaults() {
+        LogOptions opts = LogOptions.parse();
+        assertEquals(Long.MAX_VALUE, opts.getLimit());
+        assertEquals(0, opts.getSkip());
+        assertFalse(opts.isOneline());
+        assertFalse(opts.isWindowed());
+    }
+
+    /** Each count may be joined to its option or be the next argument. */
+    @Test
+    public void counts() {
+        for (String[] args : new String[][] {
+                {"-n", "5", "--skip", "3"}, {"-n5", "--skip=3"},
+                {"--max-count", "5", "--skip=3"},
+                {"--max-count=5", "--skip", "3"}}) {
+            LogOptions opts = LogOptions.parse(args);
+            assertEquals(5, opts.getLimit());
+            assertEquals(3, opts.getSkip());
+        }
+        assertEquals(7, LogOptions.parse("-n", "5", "--oneline", "-n7")
+                     .getLimit());
+        assertTrue(LogOptions.parse("--oneline", "--skip", "0").isOneline());
+    }
+
+    /** Dates may be joined to their option or be the next argument, and
+     *  --until with only a day includes the whole of it. */
+    @Test
+    public void window() {
+        LogOptions opts = LogOptions.parse("--since", "2020-01-02 03:04",
+                                           "--until=2020-02-03");
+        assertTrue(opts.isWindowed());
+        assertEquals(millis("2020-01-02T03:04"), opts.getSince());
+        assertEquals(LocalDate.parse("2020-02-04")
+                     .atStartOfDay(ZoneId.systemDefault()).toInstant()
+                     .toEpochMilli() - 1, opts.getUntil());
+        assertEquals(millis("2020-01-02T03:04:05"),
+                     LogOptions.parse("--since=2020-01-02T03:04:05")
+                     .getSince());
+        assertEquals(millis("2020-02-03T00:00"),
+                     LogOptions.parse("--until", "2020-02-03T00:00")
+                     .getUntil());
+    }
+
+    /** Unknown options, missing or malformed values and bad dates are
+     *  rejected. */
+    @Test
+    public void invalid() {
+        String[][] bad = {
+            {"-x"}, {"-n"}, {"--skip"}, {"--max-count"}, {"-n", "five"},
+            {"--skip", "-1"}, {"--max-count", "1234567890123456789"},
+            {"--since"}, {"--since", "yesterday"}, {"--until=2020-13-01"},
+            {"--skip", "3", "4"}, {"5"},
+        };
+        for (String[] args : bad) {
+            assertNull(LogOptions.parse(args));
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package gitlet;
 
+import java.util.Arrays;
+
 /** Driver class for Gitlet, the tiny stupid version-control system.
  *  @author Harshaan Sall
  */
@@ -12,12 +14,22 @@ public class Main {
             System.out.println("Please enter a command");
             return;
         }
+        try {
+            mainCommands(args);
+        } catch (GitletException excp) {
+            System.out.println(excp.getMessage());
+        }
+        Repo.persist();
+    }
+
+    /** Runs the command named by ARGS[0]. */
+    public static void mainCommands(String... args) {
         switch (args[0]) {
         case "init":
             Repo.init();
             break;
         case "add":
-            Repo.add(args[1]);
+            Repo.add(Arrays.copyOfRange(args, 1, args.length));
             break;
         case "commit":
             Repo.commit(args[1]);
@@ -37,7 +49,7 @@ public class Main {
                 break;
             }
         case "log":
-            Repo.log();
+            Repo.log(Arrays.copyOfRange(args, 1, args.length));
             break;
         default:
             mainOverflow(args);
@@ -47,7 +59,7 @@ public class Main {
     public static void mainOverflow(String... args) {
         switch (args[0]) {
         case "global-log":
-            Repo.globaLog();
+            Repo.globaLog(Arrays.copyOfRange(args, 1, args.length));
             break;
         case "find":
             Repo.find(args[1]);
@@ -59,7 +71,14 @@ public class Main {
             Repo.status();
             break;
         case "branch":
-            Repo.branch(args[1]);
+            if (args.length == 3 && args[1].equals("--contains")) {
+                Repo.branchesContaining(args[2]);
+            } else {
+                Repo.branch(args[1]);
+            }
+            break;
+        case "compare":
+            Repo.compare(args[1], args.length > 2 ? args[2] : null);
             break;
         case "rm-branch":
             Repo.rmBranch(args[1]);
@@ -70,6 +89,15 @@ public class Main {
         case "merge":
             Repo.merge(args[1]);
             break;
+        case "pack":
+            Repo.pack();
+            break;
+        case "gc":
+            Repo.gc(Arrays.copyOfRange(args, 1, args.length));
+            break;
+        case "monitor":
+            Repo.monitor(Arrays.copyOfRange(args, 1, args.length));
+            break;
         default:
             System.out.println("No command with that name exists.");
         }
@@ -0,0 +1,143 @@
+package gitlet;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of whole commands, each run as its own process in a scratch
+ *  directory, as a user would run them.
+ *  @author Harshaan Sall */
+public class MainTest {
+
+    /** Returns a new, empty scratch directory. */
+    private static File scratch() {
+        try {
+            return Files.createTempDirectory("gitlet").toFile();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Deletes FILE and, if it is a directory, everything below it. */
+    private static void remove(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                remove(child);
+            }
+        }
+        file.delete();
+    }
+
+    /** Returns the output of running gitlet with ARGS in DIR. */
+    private static String run(File dir, String... args) {
+        String[] command = new String[args.length + 4];
+        command[0] = new File(System.getProperty("java.home"), "bin/java")
+            .getPath();
+        command[1] = "-cp";
+        command[2] = System.getProperty("java.class.path");
+        command[3] = "gitlet.Main";
+        System.arraycopy(args, 0, command, 4, args.length);
+        try {
+            Process proc = new ProcessBuilder(command).directory(dir)
+                .redirectErrorStream(true).start();
+            String out = new String(proc.getInputStream().readAllBytes(),
+                                    StandardCharsets.UTF_8);
+            proc.waitFor();
+            return out;
+        } catch (IOException | InterruptedException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes CONTENTS to the file NAME in DIR. */
+    private static void write(File dir, String name, String contents) {
+        Utils.writeContents(new File(dir, name), contents);
+    }
+
+    /** Returns the contents of the file NAME in DIR. */
+    private static String read(File dir, String name) {
+        return Utils.readContentsAsString(new File(dir, name));
+    }
+
+    /** Returns the id of the commit at the head of the current branch of
+     *  the repository in DIR. */
+    private static String head(File dir) {
+        return run(dir, "log").split("\n")[1].substring("commit ".length());
+    }
+
+    /** Sets up in DIR a repository whose master holds a.txt as "one",
+     *  with a branch other one commit ahead holding it as "two", and
+     *  returns the id of that commit. */
+    private static String branchAhead(File dir) {
+        run(dir, "init");
+        write(dir, "a.txt", "one\n");
+        run(dir, "add", "a.txt");
+        run(dir, "commit", "one");
+        run(dir, "branch", "other");
+        run(dir, "checkout", "other");
+        write(dir, "a.txt", "two\n");
+        run(dir, "add", "a.txt");
+        run(dir, "commit", "two");
+        String id = head(dir);
+        run(dir, "checkout", "master");
+        return id;
+    }
+
+    /** Merging an abbreviated id of a commit the current branch is an
+     *  ancestor of moves the branch and the working files to it. */
+    @Test
+    public void mergeFastForwardsToCommitId() {
+        File dir = scratch();
+        String ahead = branchAhead(dir);
+        assertEquals("one\n", read(dir, "a.txt"));
+        assertEquals("Current branch fast-forwarded.\n",
+                     run(dir, "merge", ahead.substring(0, 8)));
+        assertEquals(ahead, head(dir));
+        assertEquals("two\n", read(dir, "a.txt"));
+        assertTrue(run(dir, "status").startsWith(
+                "=== Branches ===\n*master\nother\n"));
+        assertEquals("Given branch is an ancestor of the current branch.\n",
+                     run(dir, "merge", ahead.substring(0, 8)));
+        remove(dir);
+    }
+
+    /** Merging an abbreviated id of a diverged commit makes a merge
+     *  commit with it as the second parent. */
+    @Test
+    public void mergeCommitIdMakesMergeCommit() {
+        File dir = scratch();
+        String ahead = branchAhead(dir);
+        write(dir, "b.txt", "master\n");
+        run(dir, "add", "b.txt");
+        run(dir, "commit", "b on master");
+        String before = head(dir);
+        assertEquals("", run(dir, "merge", ahead.substring(0, 8)));
+        assertEquals("two\n", read(dir, "a.txt"));
+        assertEquals("master\n", read(dir, "b.txt"));
+        String log = run(dir, "log");
+        assertTrue(log.contains("\nMerge: " + before.substring(0, 7) + " "
+                                + ahead.substring(0, 7) + "\n"));
+        assertTrue(log.contains("\nMerged " + ahead.substring(0, 8)
+                                + " into master.\n"));
+        remove(dir);
+    }
+
+    /** Merging something that is neither a branch nor a commit changes
+     *  nothing. */
+    @Test
+    public void mergeUnknown() {
+        File dir = scratch();
+        String ahead = branchAhead(dir);
+        String before = head(dir);
+        assertEquals("A branch with that name does not exist.\n",
+                     run(dir, "merge", "nosuchbranch"));
+        assertEquals(before, head(dir));
+        assertFalse(before.equals(ahead));
+        remove(dir);
+    }
+}
@@ -0,0 +1,373 @@
+package gitlet;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/** An opt-in filesystem monitor for a working tree.  Run as its own
+ *  process, the monitor watches every directory of the tree with a
+ *  WatchService and appends the path of each file or directory that
+ *  changes to a log.  The log starts with a token naming this run of
+ *  the log; the monitor starts a new token whenever it may have missed
+ *  events, as when the event queue overflows, and when the log grows
+ *  too long.  A client remembers the token and the length of the log
+ *  it has seen, and afterwards needs to look only at the paths logged
+ *  since.  Before reading the log a client creates a cookie file and
+ *  waits for the monitor to log it, so that every change made before
+ *  the query is in the log.  While running, the monitor holds a lock
+ *  on its lock file, which tells clients whether it is running.
+ *  @author Harshaan Sall */
+public class Monitor {
+
+    /** Prefix of a log line naming a changed path. */
+    private static final String PATH = "p ";
+
+    /** Prefix of a log line naming a cookie. */
+    private static final String COOKIE = "c ";
+
+    /** Name of the file whose creation stops the monitor. */
+    private static final String STOP = "stop";
+
+    /** Number of bytes above which the log is restarted. */
+    private static final long LOG_LIMIT = 1 << 20;
+
+    /** Milliseconds a client waits for its cookie to be logged. */
+    private static final long COOKIE_TIMEOUT = 2000;
+
+    /** Directory holding the monitor's files. */
+    private final File _dir;
+
+    /** Root of the watched tree. */
+    private final Path _root;
+
+    /** Names of top-level entries of the tree that are not watched. */
+    private final Set<String> _excluded;
+
+    /** Lock file. */
+    private final File _lock;
+
+    /** Log of changed paths. */
+    private final File _log;
+
+    /** Constructor for a monitor keeping its files in DIR and watching
+     *  the tree under ROOT, apart from the top-level entries named
+     *  EXCLUDED. */
+    public Monitor(File dir, File root, String... excluded) {
+        this._dir = dir;
+        this._root = root.toPath().toAbsolutePath().normalize();
+        this._excluded = Set.of(excluded);
+        this._lock = new File(dir, "lock");
+        this._log = new File(dir, "log");
+    }
+
+    /** Watches the tree until the monitor is stopped. */
+    public void run() {
+        _dir.mkdirs();
+        new File(_dir, STOP).delete();
+        try (FileChannel lockChannel = FileChannel.open(_lock.toPath(),
+                 StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = lockChannel.tryLock()) {
+            if (lock == null) {
+                throw Utils.error("A monitor is already running.");
+            }
+            watch();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Asks a running monitor to stop. */
+    public void stop() {
+        if (!isRunning()) {
+            throw Utils.error("No monitor is running.");
+        }
+        Utils.writeContents(new File(_dir, STOP), "");
+    }
+
+    /** Returns true if a monitor is running for this tree.
+     * @return bool. */
+    public boolean isRunning() {
+        if (!_lock.isFile()) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(_lock.toPath(),
+                 StandardOpenOption.WRITE);
+             FileLock lock = channel.tryLock()) {
+            return lock == null;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Returns the paths of the tree changed since the log position
+     *  SINCE, or a query without changes if the paths that changed
+     *  cannot be known and the whole tree must be scanned.  Returns null
+     *  if the monitor is not running.  A changed path may name a
+     *  directory, in which case anything under it may have changed.
+     * @param since the token and length of the log last seen, or null.
+     * @return query. */
+    public Query query(Position since) {
+        if (!isRunning()) {
+            return null;
+        }
+        String cookie = "cookie-" + UUID.randomUUID();
+        File cookieFile = new File(_dir, cookie);
+        Utils.writeContents(cookieFile, "");
+        try {
+            long deadline = System.currentTimeMillis() + COOKIE_TIMEOUT;
+            while (System.currentTimeMillis() < deadline) {
+                Query result = readLog(cookie, since);
+                if (result != null) {
+                    return result;
+                }
+                Thread.sleep(2);
+            }
+            return null;
+        } catch (InterruptedException excp) {
+            return null;
+        } finally {
+            cookieFile.delete();
+        }
+    }
+
+    /** Returns the changes logged since SINCE if the log already holds
+     *  COOKIE, or else null. */
+    private Query readLog(String cookie, Position since) {
+        byte[] log;
+        try {
+            log = Files.readAllBytes(_log.toPath());
+        } catch (IOException excp) {
+            return null;
+        }
+        String token = null;
+        long start = -1;
+        Set<String> changed = new LinkedHashSet<>();
+        boolean synced = false;
+        int pos = 0;
+        for (int next = pos; next < log.length; next += 1) {
+            if (log[next] != '\n') {
+                continue;
+            }
+            String line = new String(log, pos, next - pos,
+                                     StandardCharsets.UTF_8);
+            if (token == null) {
+                token = line;
+                if (since != null && since.getToken().equals(token)) {
+                    start = since.getOffset();
+                }
+            } else if (line.equals(COOKIE + cookie)) {
+                synced = true;
+            } else if (line.startsWith(PATH) && pos >= start) {
+                changed.add(line.substring(PATH.length()));
+            }
+            pos = next + 1;
+        }
+        if (!synced) {
+            return null;
+        }
+        return new Query(new Position(token, pos),
+                         start < 0 ? null : changed);
+    }
+
+    /** Logs changes to the tree until asked to stop.  A key for no
+     *  known directory, cancelled by a restart or for a directory since
+     *  removed, is cancelled and its events dropped; since they may have
+     *  been changes, the log is restarted as on an overflow. */
+    private void watch() throws IOException {
+        try (WatchService watcher = FileSystems.getDefault()
+                 .newWatchService()) {
+            HashMap<WatchKey, Path> dirs = new HashMap<>();
+            Writer log = restart(watcher, dirs, null);
+            while (true) {
+                WatchKey key;
+                try {
+                    key = watcher.take();
+                } catch (InterruptedException
+                         | ClosedWatchServiceException excp) {
+                    break;
+                }
+                Path dir = dirs.get(key);
+                if (dir == null) {
+                    key.cancel();
+                    log = restart(watcher, dirs, log);
+                    continue;
+                }
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        overflow = true;
+                        continue;
+                    }
+                    Path path = dir.resolve((Path) event.context());
+                    String name = path.getFileName().toString();
+                    if (dir.equals(_dir.toPath().toAbsolutePath())) {
+                        if (name.equals(STOP)) {
+                            log.close();
+                            return;
+                        } else if (name.startsWith("cookie-")
+                                   && event.kind() == ENTRY_CREATE) {
+                            log.write(COOKIE + name + "\n");
+                        }
+                        continue;
+                    }
+                    String rel = relative(path);
+                    if (rel == null || rel.contains("\n")) {
+                        overflow |= rel != null;
+                        continue;
+                    }
+                    if (event.kind() == ENTRY_CREATE && Files.isDirectory(
+                            path, LinkOption.NOFOLLOW_LINKS)) {
+                        register(watcher, dirs, path);
+                    }
+                    log.write(PATH + rel + "\n");
+                }
+                if (!key.reset()) {
+                    dirs.remove(key);
+                }
+                if (overflow || _log.length() > LOG_LIMIT) {
+                    log = restart(watcher, dirs, log);
+                } else {
+                    log.flush();
+                }
+            }
+            log.close();
+        }
+    }
+
+    /** Starts a new log with a new token, closing the old LOG if it is
+     *  not null, and (re)registers every directory of the tree with
+     *  WATCHER, recording them in DIRS.  Returns the new log. */
+    private Writer restart(WatchService watcher, HashMap<WatchKey, Path> dirs,
+                           Writer log) throws IOException {
+        if (log != null) {
+            log.close();
+        }
+        for (WatchKey key : dirs.keySet()) {
+            key.cancel();
+        }
+        dirs.clear();
+        Path self = _dir.toPath().toAbsolutePath();
+        dirs.put(self.register(watcher, ENTRY_CREATE), self);
+        register(watcher, dirs, _root);
+        File tmp = new File(_dir, "log.tmp");
+        Utils.writeContents(tmp, UUID.randomUUID() + "\n");
+        Files.move(tmp.toPath(), _log.toPath(),
+                   StandardCopyOption.ATOMIC_MOVE,
+                   StandardCopyOption.REPLACE_EXISTING);
+        return new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(_log, true), StandardCharsets.UTF_8));
+    }
+
+    /** Registers DIR and every directory below it with WATCHER,
+     *  recording them in DIRS. */
+    private void register(WatchService watcher, HashMap<WatchKey, Path> dirs,
+                          Path dir) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+            dirs.put(dir.register(watcher, ENTRY_CREATE, ENTRY_DELETE,
+                                  ENTRY_MODIFY), dir);
+            for (Path entry : entries) {
+                if (relative(entry) != null && Files.isDirectory(entry,
+                        LinkOption.NOFOLLOW_LINKS)) {
+                    register(watcher, dirs, entry);
+                }
+            }
+        } catch (IOException excp) {
+            /* Removed while being registered; its parent's event is
+             * logged. */
+        }
+    }
+
+    /** Returns the path of PATH within the tree, or null if it is not
+     *  part of the tree. */
+    private String relative(Path path) {
+        Path rel = _root.relativize(path);
+        if (rel.getNameCount() == 0
+            || _excluded.contains(rel.getName(0).toString())) {
+            return null;
+        }
+        return rel.toString().replace(File.separator, WorkTree.SEPARATOR);
+    }
+
+    /** A place in the log: its token and a length of it. */
+    public static class Position {
+        /** Token. */
+        private final String _token;
+
+        /** Length of the log, in bytes. */
+        private final long _offset;
+
+        /** Constructor for the position OFFSET bytes into the log with
+         *  TOKEN. */
+        public Position(String token, long offset) {
+            this._token = token;
+            this._offset = offset;
+        }
+
+        /** Getter for token.
+         * @return token. */
+        public String getToken() {
+            return this._token;
+        }
+
+        /** Getter for offset.
+         * @return offset. */
+        public long getOffset() {
+            return this._offset;
+        }
+    }
+
+    /** The answer to a query: the position of the log reached, and the
+     *  paths changed before it. */
+    public static class Query {
+        /** Position reached. */
+        private final Position _position;
+
+        /** Changed paths, or null if they are not known. */
+        private final Set<String> _changed;
+
+        /** Constructor for a query reaching POSITION with CHANGED. */
+        Query(Position position, Set<String> changed) {
+            this._position = position;
+            this._changed = changed;
+        }
+
+        /** Getter for the position reached.
+         * @return position. */
+        public Position getPosition() {
+            return this._position;
+        }
+
+        /** Getter for the changed paths, or null if the whole tree must
+         *  be scanned.
+         * @return paths. */
+        public Set<String> getChanged() {
+            return this._changed;
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package gitlet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/** The 20-byte SHA-1 id of an object, held in three primitive words
+ *  rather than as a 40-character String, for use as a key in large
+ *  sets and maps of ids.  Ids are compared word by word, in the same
+ *  order as their hex forms, and an id's first four bytes serve as its
+ *  hash code, since SHA-1 output is already uniformly distributed.  Hex
+ *  conversion goes through lookup tables, and hashing reuses one
+ *  MessageDigest per thread.  Ids held in bulk or for the life of a
+ *  command are ObjectIds: the sets and maps of gc and pack, the cache
+ *  of loaded commits, branch heads and the trees seen in a walk.  The
+ *  file maps of trees, commits and the staging area keep hex Strings,
+ *  the form in which commands compare, print and encode them.
+ *  @author Harshaan Sall */
+public final class ObjectId implements Comparable<ObjectId> {
+
+    /** Length of an id in bytes. */
+    static final int BYTES = 20;
+
+    /** Hex digits, by value. */
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    /** Value of each hex digit, by character, or -1. */
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        java.util.Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < DIGITS.length; i += 1) {
+            VALUES[DIGITS[i]] = (byte) i;
+            VALUES[Character.toUpperCase(DIGITS[i])] = (byte) i;
+        }
+    }
+
+    /** This thread's SHA-1 digest. */
+    private static final ThreadLocal<MessageDigest> DIGEST =
+        ThreadLocal.withInitial(() -> {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException excp) {
+                throw new IllegalArgumentException(
+                        "System does not support SHA-1");
+            }
+        });
+
+    /** This thread's buffer for finished digests. */
+    private static final ThreadLocal<byte[]> SCRATCH =
+        ThreadLocal.withInitial(() -> new byte[BYTES]);
+
+    /** Bytes 0 to 7. */
+    private final long _w0;
+
+    /** Bytes 8 to 15. */
+    private final long _w1;
+
+    /** Bytes 16 to 19. */
+    private final int _w2;
+
+    /** Constructor for the id whose bytes, big-endian, are W0, W1 and
+     *  W2. */
+    ObjectId(long w0, long w1, int w2) {
+        this._w0 = w0;
+        this._w1 = w1;
+        this._w2 = w2;
+    }
+
+    /** Returns the id held in the 20 bytes of RAW starting at OFF.
+     * @param raw r.
+     * @param off o.
+     * @return id. */
+    public static ObjectId fromRaw(byte[] raw, int off) {
+        return new ObjectId(word(raw, off, 8), word(raw, off + 8, 8),
+                            (int) word(raw, off + 16, 4));
+    }
+
+    /** Returns the id whose hex form is HEX, or null if HEX is not 40
+     *  hex digits.
+     * @param hex h.
+     * @return id. */
+    public static ObjectId parse(String hex) {
+        if (hex.length() != 2 * BYTES) {
+            return null;
+        }
+        long w0 = 0, w1 = 0, w2 = 0;
+        int bad = 0;
+        for (int i = 0; i < 16; i += 1) {
+            int v0 = digit(hex.charAt(i));
+            int v1 = digit(hex.charAt(16 + i));
+            bad |= v0 | v1;
+            w0 = w0 << 4 | v0;
+            w1 = w1 << 4 | v1;
+        }
+        for (int i = 32; i < 40; i += 1) {
+            int v2 = digit(hex.charAt(i));
+            bad |= v2;
+            w2 = w2 << 4 | v2;
+        }
+        return bad < 0 ? null : new ObjectId(w0, w1, (int) w2);
+    }
+
+    /** Returns the id whose hex form is HEX, which must be valid.
+     * @param hex h.
+     * @return id. */
+    public static ObjectId fromHex(String hex) {
+        ObjectId id = parse(hex);
+        if (id == null) {
+            throw Utils.error("Bad object id %s.", hex);
+        }
+        return id;
+    }
+
+    /** Returns this thread's SHA-1 digest, reset.  It must not be used
+     *  again on this thread until the caller has finished with it.
+     * @return digest. */
+    public static MessageDigest digest() {
+        MessageDigest md = DIGEST.get();
+        md.reset();
+        return md;
+    }
+
+    /** Returns the id given by finishing MD, which resets it.
+     * @param md m.
+     * @return id. */
+    public static ObjectId of(MessageDigest md) {
+        byte[] raw = SCRATCH.get();
+        try {
+            md.digest(raw, 0, BYTES);
+        } catch (DigestException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        return fromRaw(raw, 0);
+    }
+
+    /** Returns the SHA-1 of the concatenation of VALS, each a byte array
+     *  or a String, taken as UTF-8.
+     * @param vals v.
+     * @return id. */
+    public static ObjectId sha1(Object... vals) {
+        MessageDigest md = digest();
+        for (Object val : vals) {
+            if (val instanceof byte[]) {
+                md.update((byte[]) val);
+            } else if (val instanceof String) {
+                md.update(((String) val).getBytes(StandardCharsets.UTF_8));
+            } else {
+                throw new IllegalArgumentException("improper type to sha1");
+            }
+        }
+        return of(md);
+    }
+
+    /** Returns the hex form of the LENGTH bytes of RAW from OFF.
+     * @param raw r.
+     * @param off o.
+     * @param length l.
+     * @return hex. */
+    public static String toHex(byte[] raw, int off, int length) {
+        char[] result = new char[2 * length];
+        for (int i = 0; i < length; i += 1) {
+            int b = raw[off + i];
+            result[2 * i] = DIGITS[(b >> 4) & 0xf];
+            result[2 * i + 1] = DIGITS[b & 0xf];
+        }
+        return new String(result);
+    }
+
+    /** Returns the hex form of RAW.
+     * @param raw r.
+     * @return hex. */
+    public static String toHex(byte[] raw) {
+        return toHex(raw, 0, raw.length);
+    }
+
+    /** Returns the bytes whose hex form is HEX, an even number of hex
+     *  digits.
+     * @param hex h.
+     * @return bytes. */
+    public static byte[] rawOf(String hex) {
+        byte[] result = new byte[hex.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            int hi = digit(hex.charAt(2 * i));
+            int lo = digit(hex.charAt(2 * i + 1));
+            if (hi < 0 || lo < 0) {
+                throw Utils.error("Bad object id %s.", hex);
+            }
+            result[i] = (byte) (hi << 4 | lo);
+        }
+        return result;
+    }
+
+    /** Returns the hex form of this id.
+     * @return hex. */
+    public String toHex() {
+        char[] result = new char[2 * BYTES];
+        fill(result, 0, _w0, 16);
+        fill(result, 16, _w1, 16);
+        fill(result, 32, _w2 & 0xffffffffL, 8);
+        return new String(result);
+    }
+
+    /** Writes the 20 bytes of this id into DEST from OFF.
+     * @param dest d.
+     * @param off o. */
+    public void copyTo(byte[] dest, int off) {
+        for (int i = 0; i < 8; i += 1) {
+            dest[off + i] = (byte) (_w0 >>> (56 - 8 * i));
+            dest[off + 8 + i] = (byte) (_w1 >>> (56 - 8 * i));
+        }
+        for (int i = 0; i < 4; i += 1) {
+            dest[off + 16 + i] = (byte) (_w2 >>> (24 - 8 * i));
+        }
+    }
+
+    /** Returns the 20 bytes of this id.
+     * @return bytes. */
+    public byte[] toRaw() {
+        byte[] result = new byte[BYTES];
+        copyTo(result, 0);
+        return result;
+    }
+
+    /** Returns the first byte of this id, from 0 to 255.
+     * @return byte. */
+    public int firstByte() {
+        return (int) (_w0 >>> 56);
+    }
+
+    /** Returns true if the hex form of this id starts with PREFIX.
+     * @param prefix p.
+     * @return bool. */
+    public boolean startsWith(String prefix) {
+        if (prefix.length() > 2 * BYTES) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i += 1) {
+            if (digit(prefix.charAt(i)) != nibble(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Compares this id with the words W0, W1 and W2 of another, as
+     *  unsigned big-endian numbers.
+     * @param w0 bytes 0 to 7.
+     * @param w1 bytes 8 to 15.
+     * @param w2 bytes 16 to 19.
+     * @return comparison. */
+    int compareTo(long w0, long w1, int w2) {
+        int c = Long.compareUnsigned(_w0, w0);
+        if (c == 0) {
+            c = Long.compareUnsigned(_w1, w1);
+        }
+        if (c == 0) {
+            c = Integer.compareUnsigned(_w2, w2);
+        }
+        return c;
+    }
+
+    @Override
+    public int compareTo(ObjectId other) {
+        return compareTo(other._w0, other._w1, other._w2);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) {
+            return true;
+        } else if (!(obj instanceof ObjectId)) {
+            return false;
+        }
+        ObjectId other = (ObjectId) obj;
+        return _w0 == other._w0 && _w1 == other._w1 && _w2 == other._w2;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (_w0 >>> 32);
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    /** Returns the Ith hex digit of this id. */
+    private int nibble(int i) {
+        if (i < 16) {
+            return (int) (_w0 >>> (60 - 4 * i)) & 0xf;
+        } else if (i < 32) {
+            return (int) (_w1 >>> (60 - 4 * (i - 16))) & 0xf;
+        }
+        return (_w2 >>> (28 - 4 * (i - 32))) & 0xf;
+    }
+
+    /** Writes the DIGITS low hex digits of WORD into DEST from OFF. */
+    private static void fill(char[] dest, int off, long word, int digits) {
+        for (int i = digits - 1; i >= 0; i -= 1) {
+            dest[off + i] = DIGITS[(int) word & 0xf];
+            word >>>= 4;
+        }
+    }
+
+    /** Returns the big-endian number in the N bytes of RAW from OFF. */
+    private static long word(byte[] raw, int off, int n) {
+        long result = 0;
+        for (int i = 0; i < n; i += 1) {
+            result = result << 8 | (raw[off + i] & 0xff);
+        }
+        return result;
+    }
+
+    /** Returns the value of the hex digit C, or -1. */
+    private static int digit(char c) {
+        return c < VALUES.length ? VALUES[c] : -1;
+    }
+}
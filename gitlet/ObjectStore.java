@@ -0,0 +1,671 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/** A content-addressed store of objects.  A newly written object lives
+ *  loose in its own file named by its SHA-1 id, fanned out into
+ *  subdirectories named by the first two hex digits of the id, so that a
+ *  command only reads and writes the objects it actually touches.  Loose
+ *  objects are periodically bundled into delta-compressed packfiles kept
+ *  in the pack subdirectory.  Both are compressed as configured by
+ *  Compression, streaming so that no object is ever held both
+ *  compressed and uncompressed in memory.
+ *  @author Harshaan Sall */
+public class ObjectStore {
+
+    /** Number of hex digits used to name a fan-out directory. */
+    static final int FANOUT_LENGTH = 2;
+
+    /** Name of the fan-out directory sampled to estimate the number of
+     *  loose objects. */
+    private static final String SAMPLE_FANOUT = "17";
+
+    /** Number of loose objects above which the store should be
+     *  packed. */
+    static final int AUTO_PACK_LIMIT = 6700;
+
+    /** Size in bytes, with its type byte, above which an object is left
+     *  loose rather than packed, so that packing never holds one larger
+     *  object in memory, nor tries to delta-encode it. */
+    static final int MAX_PACKED = 1 << 20;
+
+    /** Type byte of an object written with Java serialization by
+     *  earlier versions, read through LegacyFormat. */
+    private static final int SERIALIZED = 's';
+
+    /** Type byte of a commit, stored in its Codec encoding. */
+    private static final int COMMIT = 'c';
+
+    /** Type byte of a blob, stored as its raw contents. */
+    private static final int BLOB = 'b';
+
+    /** Type byte of a tree, stored in its Codec encoding. */
+    private static final int TREE = 't';
+
+    /** Root directory of this store. */
+    private final File _dir;
+
+    /** Compression applied to newly written objects. */
+    private final Compression _compression = Compression.configured();
+
+    /** Directory holding packfiles. */
+    private final File _packDir;
+
+    /** Packs of this store, found on first use. */
+    private List<PackFile> _packs;
+
+    /** Constructor for a store rooted at DIR. */
+    public ObjectStore(File dir) {
+        this._dir = dir;
+        this._packDir = Utils.join(dir, "pack");
+    }
+
+    /** Creates the root directory of this store if needed. */
+    public void setup() {
+        if (!_dir.exists()) {
+            _dir.mkdirs();
+        }
+    }
+
+    /** Returns the file holding the object ID.
+     * @param id id.
+     * @return file. */
+    public File fileFor(String id) {
+        return Utils.join(_dir, id.substring(0, FANOUT_LENGTH),
+                id.substring(FANOUT_LENGTH));
+    }
+
+    /** Checks for the object ID.
+     * @param id id.
+     * @return bool. */
+    public boolean contains(String id) {
+        if (id.length() != Utils.UID_LENGTH) {
+            return false;
+        }
+        if (fileFor(id).isFile()) {
+            return true;
+        }
+        ObjectId key = ObjectId.parse(id);
+        for (PackFile pack : packs()) {
+            if (key != null && pack.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Writes COM as the object ID unless it is already stored.  A
+     *  commit's id hashes everything it records, so a stored object
+     *  with that id is the same commit and never needs rewriting.
+     * @param id id.
+     * @param com commit. */
+    public void putCommit(String id, Commit com) {
+        if (!contains(id)) {
+            putTree(com.getTree());
+            write(id, COMMIT, Codec.encodeCommit(com));
+        }
+    }
+
+    /** Writes TREE and every subtree of it not yet stored.  Only trees
+     *  built in memory are written; a tree read from this store, and so
+     *  everything below it, is stored already.
+     * @param tree tree. */
+    public void putTree(Tree tree) {
+        if (tree.isStored()) {
+            return;
+        }
+        for (Tree sub : tree.loadedTrees()) {
+            putTree(sub);
+        }
+        String id = tree.getId();
+        if (!contains(id)) {
+            write(id, TREE, tree.encode());
+        }
+        tree.stored(this);
+    }
+
+    /** Stores CONTENTS as a blob.
+     * @param contents bytes.
+     * @return blob id. */
+    public String putBlob(byte[] contents) {
+        MessageDigest md = Blob.digest();
+        md.update(contents);
+        String id = ObjectId.of(md).toHex();
+        if (!contains(id)) {
+            write(id, BLOB, contents);
+        }
+        return id;
+    }
+
+    /** Writes the object ID of type TYPE with contents DATA. */
+    private void write(String id, int type, byte[] data) {
+        File tmp = tempFile();
+        try (OutputStream out = _compression.compress(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.write(type);
+            out.write(data);
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        install(tmp, id);
+    }
+
+    /** Stores the contents of FILE as a blob in a single streaming pass
+     *  that hashes and compresses it through a fixed-size buffer, so the
+     *  memory used does not depend on the size of FILE.
+     * @param file file.
+     * @return blob id. */
+    public String putBlob(File file) {
+        MessageDigest md = Blob.digest();
+        File tmp = tempFile();
+        try (FileChannel in =
+                 FileChannel.open(file.toPath(), StandardOpenOption.READ);
+             OutputStream out = _compression.compress(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.write(BLOB);
+            ByteBuffer buf = ByteBuffer.allocate(Blob.BUFFER_SIZE);
+            while (in.read(buf) >= 0) {
+                md.update(buf.array(), 0, buf.position());
+                out.write(buf.array(), 0, buf.position());
+                buf.clear();
+            }
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        String id = ObjectId.of(md).toHex();
+        install(tmp, id);
+        return id;
+    }
+
+    /** Returns the commit ID, or null if there is no such object or it
+     *  is not a commit.
+     * @param id id.
+     * @return commit. */
+    public Commit getCommit(String id) {
+        try (InputStream in = open(id)) {
+            int type = in == null ? -1 : in.read();
+            if (type == COMMIT) {
+                return Codec.decodeCommit(in.readAllBytes(), this);
+            } else if (type == SERIALIZED) {
+                Object obj = LegacyFormat.read(in.readAllBytes());
+                if (obj instanceof LegacyFormat.LegacyCommit) {
+                    return ((LegacyFormat.LegacyCommit) obj).toCommit(this);
+                }
+            }
+            return null;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns true if the object ID is a commit.  Only its type byte is
+     *  read: the first byte of a loose object, or the header of its pack
+     *  entry.  Objects written with Java serialization by earlier
+     *  versions do not say what they are, and are decoded to find out.
+     * @param id id.
+     * @return bool. */
+    public boolean isCommit(String id) {
+        int type = -1;
+        if (fileFor(id).isFile()) {
+            try (InputStream in = open(id)) {
+                type = in.read();
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+        } else {
+            ObjectId key = ObjectId.parse(id);
+            for (PackFile pack : packs()) {
+                type = key == null ? -1 : pack.type(key);
+                if (type >= 0) {
+                    break;
+                }
+            }
+        }
+        return type == COMMIT || type == SERIALIZED && getCommit(id) != null;
+    }
+
+    /** Returns the encoding of the tree ID.
+     * @param id id.
+     * @return bytes. */
+    public byte[] readTree(String id) {
+        try (InputStream in = open(id)) {
+            if (in == null || in.read() != TREE) {
+                throw Utils.error("No tree %s.", id);
+            }
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the contents of the blob ID.
+     * @param id id.
+     * @return bytes. */
+    public byte[] readBlob(String id) {
+        try (InputStream in = openBlob(id)) {
+            return in.readAllBytes();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the contents of the blob ID to FILE, streaming them so
+     *  that the blob is never held in memory whole.
+     * @param id id.
+     * @param file file. */
+    public void copyBlob(String id, File file) {
+        try (InputStream in = openBlob(id)) {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a stream over the contents of the blob ID. */
+    private InputStream openBlob(String id) throws IOException {
+        InputStream in = open(id);
+        if (in == null) {
+            throw Utils.error("No blob %s.", id);
+        } else if (in.read() != BLOB) {
+            in.close();
+            throw Utils.error("Object %s is not a blob.", id);
+        }
+        return in;
+    }
+
+    /** Returns a stream over the type byte and contents of object ID,
+     *  or null if there is no such object. */
+    private InputStream open(String id) throws IOException {
+        if (id.length() != Utils.UID_LENGTH) {
+            return null;
+        }
+        File file = fileFor(id);
+        if (file.isFile()) {
+            return Compression.decompress(
+                    new BufferedInputStream(new FileInputStream(file)));
+        }
+        ObjectId key = ObjectId.parse(id);
+        for (PackFile pack : packs()) {
+            InputStream in = key == null ? null : pack.open(key);
+            if (in != null) {
+                return in;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the type byte and contents of object ID, or null if there
+     *  is no such object or they come to more than MAX_PACKED bytes.  No
+     *  more than that is ever read. */
+    private byte[] readPackable(ObjectId id) {
+        try (InputStream in = open(id.toHex())) {
+            if (in == null) {
+                return null;
+            }
+            byte[] result = in.readNBytes(MAX_PACKED + 1);
+            return result.length > MAX_PACKED ? null : result;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns a new temporary file in this store. */
+    private File tempFile() {
+        try {
+            return File.createTempFile("obj", ".tmp", _dir);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Forces the fully written TMP to disk and atomically moves it into
+     *  place as the object ID, then forces its fan-out directory, so
+     *  that a reference recorded afterwards never names an object lost
+     *  in a crash.  TMP is discarded if that object is already stored. */
+    private void install(File tmp, String id) {
+        if (contains(id)) {
+            tmp.delete();
+            return;
+        }
+        File file = fileFor(id);
+        File parent = file.getParentFile();
+        boolean created = parent.mkdirs();
+        try {
+            try (FileChannel channel =
+                     FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            tmp.delete();
+            throw Utils.error("Could not store object %s.", id);
+        }
+        syncDirectory(parent);
+        if (created) {
+            syncDirectory(_dir);
+        }
+    }
+
+    /** Returns the ids of all stored objects starting with PREFIX, in
+     *  lexicographic order.  Only the single fan-out directory named by
+     *  PREFIX is listed.
+     * @param prefix p.
+     * @return ids. */
+    public List<String> idsWithPrefix(String prefix) {
+        List<String> result = new ArrayList<>();
+        if (prefix.length() < FANOUT_LENGTH) {
+            return result;
+        }
+        String fan = prefix.substring(0, FANOUT_LENGTH);
+        List<String> names = Utils.plainFilenamesIn(Utils.join(_dir, fan));
+        String rest = prefix.substring(FANOUT_LENGTH);
+        if (names != null) {
+            for (String name : names) {
+                if (name.startsWith(rest)) {
+                    result.add(fan + name);
+                }
+            }
+        }
+        for (PackFile pack : packs()) {
+            for (String id : pack.idsWithPrefix(prefix)) {
+                if (!result.contains(id)) {
+                    result.add(id);
+                }
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    /** Returns the ids of all loose objects.
+     * @return ids. */
+    public List<ObjectId> looseIDs() {
+        List<ObjectId> result = new ArrayList<>();
+        String[] fans = _dir.list();
+        if (fans == null) {
+            return result;
+        }
+        for (String fan : fans) {
+            if (fan.length() != FANOUT_LENGTH) {
+                continue;
+            }
+            List<String> names = Utils.plainFilenamesIn(Utils.join(_dir, fan));
+            for (String name : names) {
+                ObjectId id = ObjectId.parse(fan + name);
+                if (id != null) {
+                    result.add(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns true if there appear to be more than AUTO_PACK_LIMIT loose
+     *  objects.  Only one fan-out directory is listed, and the total is
+     *  extrapolated from it, so this check is cheap enough to run after
+     *  every command.
+     * @return bool. */
+    public boolean needsPack() {
+        List<String> sample =
+            Utils.plainFilenamesIn(Utils.join(_dir, SAMPLE_FANOUT));
+        int limit = (AUTO_PACK_LIMIT + 255) / 256;
+        return sample != null && sample.size() > limit;
+    }
+
+    /** Bundles the objects of this store in LIVE into a single new
+     *  packfile, then removes the loose objects and old packs it
+     *  replaces.  Every other object is left loose, and taken out of old
+     *  packs into a loose file, so that its age is its own rather than
+     *  that of the latest pack; objects larger than MAX_PACKED are too.
+     *  NAMES maps object ids to the file names they were last stored
+     *  under, newest first; objects sharing a name are placed next to
+     *  each other so that they can be delta-encoded against each other.
+     * @param names hints.
+     * @param live l. */
+    public void pack(Map<String, String> names, Set<ObjectId> live) {
+        pack(names, live, id -> true);
+    }
+
+    /** Returns the objects of this store not in LIVE that were stored
+     *  before the time CUTOFF, in milliseconds since the epoch, mapped
+     *  to the number of bytes each takes up.  Objects stored since
+     *  CUTOFF are never garbage, since a command may be about to refer
+     *  to them.  An object in a pack is taken to be as old as the pack:
+     *  only objects in LIVE when it was written are packed, and any
+     *  that have since left it are dated as the pack when they are next
+     *  taken out of it.
+     * @param live l.
+     * @param cutoff c.
+     * @return garbage. */
+    public Map<ObjectId, Long> garbage(Set<ObjectId> live, long cutoff) {
+        TreeMap<ObjectId, Long> result = new TreeMap<>();
+        for (ObjectId id : looseIDs()) {
+            File file = fileFor(id.toHex());
+            if (!live.contains(id) && file.lastModified() < cutoff) {
+                result.put(id, file.length());
+            }
+        }
+        for (PackFile pack : packs()) {
+            if (pack.getIndex().lastModified() >= cutoff) {
+                continue;
+            }
+            for (ObjectId id : pack.ids()) {
+                if (!live.contains(id) && !result.containsKey(id)) {
+                    result.put(id, pack.entrySize(id));
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Deletes the objects GARBAGE, repacking the rest of this store as
+     *  pack does, with the hints NAMES and the objects LIVE.  Abandoned
+     *  temporary files older than CUTOFF, loose or left by an
+     *  interrupted pack, are deleted too.
+     * @param garbage g.
+     * @param names hints.
+     * @param live l.
+     * @param cutoff c. */
+    public void sweep(Set<ObjectId> garbage, Map<String, String> names,
+                      Set<ObjectId> live, long cutoff) {
+        for (File dir : new File[] {_dir, _packDir}) {
+            File[] temps =
+                dir.listFiles((parent, name) -> name.endsWith(".tmp"));
+            if (temps == null) {
+                continue;
+            }
+            for (File tmp : temps) {
+                if (tmp.lastModified() < cutoff) {
+                    tmp.delete();
+                }
+            }
+        }
+        pack(names, live, id -> !garbage.contains(id));
+    }
+
+    /** Bundles the objects of this store accepted by KEEP and in LIVE
+     *  into a single new packfile, ordered by the hints NAMES, then
+     *  removes every old pack and every loose object that was packed or
+     *  not kept.  Kept objects not packed, because they are not live or
+     *  too large, stay loose, those in old packs being written out loose
+     *  first.  Nothing is removed until the new pack and index are on
+     *  disk and atomically in place; if writing or installing them
+     *  fails, their temporary files are deleted and the store is left as
+     *  it was. */
+    private void pack(Map<String, String> names, Set<ObjectId> live,
+                      Predicate<ObjectId> keep) {
+        List<PackFile> oldPacks = packs();
+        List<ObjectId> loose = looseIDs();
+        LinkedHashSet<ObjectId> all = new LinkedHashSet<>(loose);
+        for (PackFile pack : oldPacks) {
+            all.addAll(pack.ids());
+        }
+        all.removeIf(keep.negate());
+        List<ObjectId> ids = new ArrayList<>(all);
+        ids.removeIf(id -> !live.contains(id));
+        PackFile packed = ids.isEmpty() ? null : write(names, ids);
+        File kept = packed == null ? null : packed.getPack();
+        for (PackFile old : oldPacks) {
+            if (old.getPack().equals(kept)) {
+                continue;
+            }
+            for (ObjectId id : old.ids()) {
+                if (all.contains(id)
+                    && (packed == null || !packed.contains(id))) {
+                    unpack(old, id);
+                }
+            }
+        }
+        for (PackFile old : oldPacks) {
+            old.close();
+            if (!old.getPack().equals(kept)) {
+                old.getIndex().delete();
+                old.getPack().delete();
+            }
+        }
+        for (ObjectId id : loose) {
+            if (!all.contains(id) || packed != null && packed.contains(id)) {
+                File file = fileFor(id.toHex());
+                file.delete();
+                file.getParentFile().delete();
+            }
+        }
+        _packs = null;
+    }
+
+    /** Returns a new pack of the objects IDS, ordered by the hints NAMES,
+     *  written and installed.  A pack of the same objects already in
+     *  place, whose name would be the same, is kept as it is. */
+    private PackFile write(Map<String, String> names, List<ObjectId> ids) {
+        HashMap<ObjectId, String> hints = new HashMap<>();
+        HashMap<ObjectId, Integer> rank = new HashMap<>();
+        for (Map.Entry<String, String> hint : names.entrySet()) {
+            ObjectId id = ObjectId.parse(hint.getKey());
+            if (id != null) {
+                hints.put(id, hint.getValue());
+                rank.put(id, rank.size());
+            }
+        }
+        Collections.sort(ids);
+        ids.sort(Comparator.comparing((ObjectId id) ->
+                hints.getOrDefault(id, "\uffff"))
+                .thenComparing(id -> rank.getOrDefault(id, rank.size())));
+        _packDir.mkdirs();
+        MessageDigest md = ObjectId.digest();
+        for (ObjectId id : ids) {
+            md.update(id.toRaw());
+        }
+        String name = "pack-" + ObjectId.of(md).toHex();
+        File pack = Utils.join(_packDir, name + ".pack");
+        File index = Utils.join(_packDir, name + ".idx");
+        File tmpPack = Utils.join(_packDir, name + ".pack.tmp");
+        File tmpIndex = Utils.join(_packDir, name + ".idx.tmp");
+        if (!index.isFile()) {
+            install(tmpPack, pack, tmpIndex, index, ids);
+        }
+        return new PackFile(pack, index);
+    }
+
+    /** Writes object ID out of the pack PACK into a loose file, forced
+     *  to disk, unless it is already loose.  The file is dated as the
+     *  pack is, so that the object does not seem newly stored. */
+    private void unpack(PackFile pack, ObjectId id) {
+        File file = fileFor(id.toHex());
+        if (file.isFile()) {
+            return;
+        }
+        File tmp = tempFile();
+        try {
+            try (InputStream in = pack.open(id);
+                 OutputStream out = _compression.compress(
+                     new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                in.transferTo(out);
+            }
+            try (FileChannel channel =
+                     FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            tmp.setLastModified(pack.getIndex().lastModified());
+            file.getParentFile().mkdirs();
+            Files.move(tmp.toPath(), file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(file.getParentFile());
+        } catch (IOException excp) {
+            tmp.delete();
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Writes the objects IDS into TMPPACK and TMPINDEX, forces them to
+     *  disk and atomically moves them to PACK and INDEX.  If any step
+     *  fails, the temporary files are deleted and nothing is moved. */
+    private void install(File tmpPack, File pack, File tmpIndex, File index,
+                         List<ObjectId> ids) {
+        boolean installed = false;
+        try {
+            PackFile.write(tmpPack, tmpIndex, ids,
+                           this::readPackable, _compression);
+            Files.move(tmpPack.toPath(), pack.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tmpIndex.toPath(), index.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+            syncDirectory(_packDir);
+            installed = true;
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            if (!installed) {
+                tmpPack.delete();
+                tmpIndex.delete();
+            }
+        }
+    }
+
+    /** Forces the entries of directory DIR to disk, so that files just
+     *  moved into it stay there after a crash.  Platforms that cannot
+     *  open a directory are left to their own ordering. */
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel =
+                 FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException excp) {
+            return;
+        }
+    }
+
+    /** Returns the packs of this store, finding them if needed. */
+    private synchronized List<PackFile> packs() {
+        if (_packs == null) {
+            _packs = PackFile.packsIn(_packDir);
+        }
+        return _packs;
+    }
+}
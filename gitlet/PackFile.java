@@ -0,0 +1,439 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/** A packfile bundling many objects into one file, together with its
+ *  companion index.  Each entry in the pack either holds an object
+ *  whole or holds a delta against an earlier entry of the same pack,
+ *  and the index (see PackIndex) maps every object id to the offset of
+ *  its entry.  Since version 3 each entry's header also gives the type
+ *  byte of its object, so the type can be told without rebuilding it.
+ *  @author Harshaan Sall */
+public class PackFile {
+
+    /** Longest chain of deltas that must be applied to rebuild an
+     *  object. */
+    static final int MAX_DEPTH = 10;
+
+    /** Number of preceding objects tried as delta bases. */
+    static final int WINDOW = 10;
+
+    /** Total size in bytes of the rebuilt entries kept for use as delta
+     *  bases. */
+    private static final long CACHE_BYTES = 16 << 20;
+
+    /** Size in bytes above which a rebuilt entry is not cached, and an
+     *  entry stored whole is streamed from the pack rather than
+     *  rebuilt. */
+    private static final int MAX_CACHED = 1 << 20;
+
+    /** Magic number at the start of a pack. */
+    private static final int PACK_MAGIC = 0x4750414b;
+
+    /** Format version of packs. */
+    private static final int VERSION = 3;
+
+    /** Position of the format version in a pack. */
+    private static final int VERSION_POSITION = 4;
+
+    /** Position of the number of entries in a pack. */
+    private static final int COUNT_POSITION = 8;
+
+    /** Entry type of an object stored whole. */
+    private static final int WHOLE = 0;
+
+    /** Entry type of an object stored as a delta. */
+    private static final int DELTA = 1;
+
+    /** The pack itself. */
+    private final File _pack;
+
+    /** The index of the pack. */
+    private final File _index;
+
+    /** The index of the pack, mapped on first use. */
+    private PackIndex _table;
+
+    /** Open handle on the pack, opened on first use. */
+    private RandomAccessFile _data;
+
+    /** Format version of the pack, read when it is opened. */
+    private int _version;
+
+    /** Recently rebuilt entries, keyed by offset, least recently used
+     *  first. */
+    private final LinkedHashMap<Long, byte[]> _cache =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Total size in bytes of the entries in the cache. */
+    private long _cached;
+
+    /** Constructor for the pack PACK indexed by INDEX. */
+    public PackFile(File pack, File index) {
+        this._pack = pack;
+        this._index = index;
+    }
+
+    /** Getter for the pack file.
+     * @return pack. */
+    public File getPack() {
+        return this._pack;
+    }
+
+    /** Getter for the index file.
+     * @return index. */
+    public File getIndex() {
+        return this._index;
+    }
+
+    /** Checks for the object ID.
+     * @param id id.
+     * @return bool. */
+    public boolean contains(ObjectId id) {
+        return table().offset(id) >= 0;
+    }
+
+    /** Getter for the ids of every object in this pack.
+     * @return ids. */
+    public List<ObjectId> ids() {
+        PackIndex index = table();
+        List<ObjectId> result = new ArrayList<>(index.count());
+        for (int i = 0; i < index.count(); i += 1) {
+            result.add(index.idAt(i));
+        }
+        return result;
+    }
+
+    /** Returns the ids in this pack starting with PREFIX.
+     * @param prefix p.
+     * @return ids. */
+    public List<String> idsWithPrefix(String prefix) {
+        return table().idsWithPrefix(prefix);
+    }
+
+    /** Returns a stream over the contents of object ID, or null if it
+     *  is not in this pack.  A large entry stored whole is inflated as
+     *  it is read, straight from the pack, so that it is never held in
+     *  memory; any other is rebuilt, going through the cache.
+     * @param id id.
+     * @return stream. */
+    public InputStream open(ObjectId id) {
+        long offset = table().offset(id);
+        if (offset < 0) {
+            return null;
+        }
+        try {
+            long start;
+            int stored;
+            synchronized (this) {
+                data().seek(offset);
+                int kind = _data.readByte();
+                _data.seek(offset + headerLength(kind) - 8);
+                int size = _data.readInt();
+                stored = _data.readInt();
+                if (kind != WHOLE || size <= MAX_CACHED) {
+                    return new ByteArrayInputStream(readEntry(offset));
+                }
+                start = offset + headerLength(kind);
+            }
+            FileInputStream file = new FileInputStream(_pack);
+            try {
+                file.getChannel().position(start);
+                return Compression.decompress(new Bounded(file, stored));
+            } catch (IOException excp) {
+                file.close();
+                throw excp;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the type byte of object ID, or -1 if it is not in this
+     *  pack.  It is read from the entry header, without inflating the
+     *  entry, except in packs written before version 3.
+     * @param id id.
+     * @return type. */
+    public synchronized int type(ObjectId id) {
+        long offset = table().offset(id);
+        if (offset < 0) {
+            return -1;
+        }
+        try {
+            data();
+            if (_version < VERSION) {
+                return readEntry(offset)[0];
+            }
+            _data.seek(offset + 1);
+            return _data.readByte();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the number of bytes the entry for object ID takes up in
+     *  this pack, or 0 if ID is not in it.
+     * @param id id.
+     * @return size. */
+    public synchronized long entrySize(ObjectId id) {
+        long offset = table().offset(id);
+        if (offset < 0) {
+            return 0;
+        }
+        try {
+            data().seek(offset);
+            int header = headerLength(_data.readByte());
+            _data.seek(offset + header - 4);
+            return header + _data.readInt();
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Releases the open handle on the pack, if any. */
+    public synchronized void close() {
+        try {
+            if (_data != null) {
+                _data.close();
+                _data = null;
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the rebuilt contents of the entry at OFFSET.  Entries are
+     *  read one at a time, as they share the open handle and cache. */
+    private synchronized byte[] readEntry(long offset) throws IOException {
+        byte[] result = _cache.get(offset);
+        if (result != null) {
+            return result;
+        }
+        data().seek(offset);
+        int type = _data.readByte();
+        if (_version >= VERSION) {
+            _data.readByte();
+        }
+        long baseOffset = type == DELTA ? _data.readLong() : -1;
+        int size = _data.readInt();
+        byte[] stored = new byte[_data.readInt()];
+        _data.readFully(stored);
+        byte[] data = Compression.decompress(stored, size);
+        if (type == DELTA) {
+            result = Delta.apply(readEntry(baseOffset), data);
+        } else {
+            result = data;
+        }
+        cache(offset, result);
+        return result;
+    }
+
+    /** Adds DATA, the rebuilt entry at OFFSET, to the cache unless it is
+     *  larger than MAX_CACHED, evicting the least recently used entries
+     *  until the cache holds no more than CACHE_BYTES. */
+    private void cache(long offset, byte[] data) {
+        if (data.length > MAX_CACHED) {
+            return;
+        }
+        byte[] old = _cache.put(offset, data);
+        _cached += data.length - (old == null ? 0 : old.length);
+        Iterator<byte[]> eldest = _cache.values().iterator();
+        while (_cached > CACHE_BYTES) {
+            _cached -= eldest.next().length;
+            eldest.remove();
+        }
+    }
+
+    /** Returns the open handle on the pack, opening it and reading its
+     *  version if needed. */
+    private RandomAccessFile data() throws IOException {
+        if (_data == null) {
+            _data = new RandomAccessFile(_pack, "r");
+            _data.seek(VERSION_POSITION);
+            _version = _data.readInt();
+        }
+        return _data;
+    }
+
+    /** Returns the length of the header of an entry of kind KIND, up to
+     *  and including its stored length. */
+    private int headerLength(int kind) {
+        return 1 + (_version >= VERSION ? 1 : 0) + (kind == DELTA ? 8 : 0)
+            + 4 + 4;
+    }
+
+    /** Returns the index of this pack, mapping it if needed. */
+    private synchronized PackIndex table() {
+        if (_table == null) {
+            _table = new PackIndex(_index);
+        }
+        return _table;
+    }
+
+    /** Writes the objects IDS, whose type bytes and contents are
+     *  delivered by SOURCE, into the pack PACK and its index INDEX.  Each
+     *  object is delta-encoded against the best of the WINDOW objects
+     *  preceding it in IDS, so IDS should list similar objects next to
+     *  each other.  No delta chain grows longer than MAX_DEPTH.  Every
+     *  entry is compressed with COMPRESSION.  Objects for which SOURCE
+     *  returns null are left out.  Both files are forced to disk before
+     *  this returns.
+     * @param pack pack.
+     * @param index index.
+     * @param ids ids.
+     * @param source source.
+     * @param compression compression. */
+    public static void write(File pack, File index, List<ObjectId> ids,
+                             Function<ObjectId, byte[]> source,
+                             Compression compression) {
+        TreeMap<ObjectId, Long> offsets = new TreeMap<>();
+        ArrayDeque<Candidate> window = new ArrayDeque<>();
+        try (FileOutputStream file = new FileOutputStream(pack)) {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(file));
+            out.writeInt(PACK_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(0);
+            for (ObjectId id : ids) {
+                byte[] data = source.apply(id);
+                if (data == null) {
+                    continue;
+                }
+                Candidate base = null;
+                byte[] best = null;
+                for (Candidate cand : window) {
+                    if (cand._depth >= MAX_DEPTH) {
+                        continue;
+                    }
+                    byte[] delta = Delta.create(cand._data, data);
+                    if (delta.length < data.length / 2
+                        && (best == null || delta.length < best.length)) {
+                        best = delta;
+                        base = cand;
+                    }
+                }
+                long offset = out.size();
+                offsets.put(id, offset);
+                byte[] entry = base == null ? data : best;
+                if (base == null) {
+                    out.writeByte(WHOLE);
+                    out.writeByte(data[0]);
+                } else {
+                    out.writeByte(DELTA);
+                    out.writeByte(data[0]);
+                    out.writeLong(base._offset);
+                }
+                byte[] stored = compression.compress(entry);
+                out.writeInt(entry.length);
+                out.writeInt(stored.length);
+                out.write(stored);
+                window.addFirst(new Candidate(offset, data,
+                        base == null ? 0 : base._depth + 1));
+                if (window.size() > WINDOW) {
+                    window.removeLast();
+                }
+            }
+            out.flush();
+            ByteBuffer count = ByteBuffer.allocate(4);
+            count.putInt(0, offsets.size());
+            file.getChannel().write(count, COUNT_POSITION);
+            file.getChannel().force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        PackIndex.write(index, offsets);
+    }
+
+    /** Returns the packs whose indices are in DIR, newest first. */
+    static List<PackFile> packsIn(File dir) {
+        List<PackFile> result = new ArrayList<>();
+        List<String> names = Utils.plainFilenamesIn(dir);
+        if (names == null) {
+            return result;
+        }
+        for (String name : names) {
+            if (name.endsWith(".idx")) {
+                String base = name.substring(0, name.length() - 4);
+                result.add(new PackFile(Utils.join(dir, base + ".pack"),
+                        Utils.join(dir, name)));
+            }
+        }
+        result.sort((p1, p2) -> Long.compare(p2._index.lastModified(),
+                p1._index.lastModified()));
+        return result;
+    }
+
+    /** A stream over no more than a given number of bytes of another,
+     *  such as one entry of a pack. */
+    private static class Bounded extends FilterInputStream {
+        /** Number of bytes left to read. */
+        private long _left;
+
+        /** Constructor for a stream over the next LIMIT bytes of IN. */
+        Bounded(InputStream in, long limit) {
+            super(in);
+            this._left = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (_left <= 0) {
+                return -1;
+            }
+            int result = super.read();
+            if (result >= 0) {
+                _left -= 1;
+            }
+            return result;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) throws IOException {
+            if (_left <= 0) {
+                return -1;
+            }
+            int n = super.read(buf, off, (int) Math.min(len, _left));
+            if (n > 0) {
+                _left -= n;
+            }
+            return n;
+        }
+    }
+
+    /** An object recently written to a pack, kept as a delta base. */
+    private static class Candidate {
+        /** Offset of the entry. */
+        private final long _offset;
+
+        /** Full contents. */
+        private final byte[] _data;
+
+        /** Length of the delta chain needed to rebuild it. */
+        private final int _depth;
+
+        /** Constructor for a candidate at OFFSET with contents DATA and
+         *  chain length DEPTH. */
+        Candidate(long offset, byte[] data, int depth) {
+            this._offset = offset;
+            this._data = data;
+            this._depth = depth;
+        }
+    }
+}
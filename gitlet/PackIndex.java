@@ -0,0 +1,176 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** The index of a packfile, read through a memory map.  After a short
+ *  header comes a fan-out table whose Kth entry counts the ids whose
+ *  first byte is at most K, then every id of the pack as 20 raw bytes
+ *  in sorted order, then the offset of each id's entry in the pack.
+ *  Looking up an id is a binary search within its fan-out bucket, so
+ *  nothing is deserialized.
+ *  @author Harshaan Sall */
+public class PackIndex {
+
+    /** Magic number at the start of a pack index. */
+    private static final int MAGIC = 0x47494458;
+
+    /** Format version of pack indices. */
+    private static final int VERSION = 2;
+
+    /** Number of entries in the fan-out table. */
+    private static final int FANOUT = 256;
+
+    /** Length of an id in bytes. */
+    private static final int ID_BYTES = Utils.UID_LENGTH / 2;
+
+    /** Position of the fan-out table. */
+    private static final int FANOUT_START = 12;
+
+    /** Position of the sorted ids. */
+    private static final int IDS_START = FANOUT_START + 4 * FANOUT;
+
+    /** The mapped index. */
+    private final MappedByteBuffer _map;
+
+    /** Number of ids in the index. */
+    private final int _count;
+
+    /** Constructor that maps the index FILE. */
+    public PackIndex(File file) {
+        try (FileChannel channel =
+                 FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            _map = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                               channel.size());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (_map.getInt(0) != MAGIC || _map.getInt(4) != VERSION) {
+            throw Utils.error("Bad pack index %s.", file);
+        }
+        _count = _map.getInt(8);
+    }
+
+    /** Getter for the number of ids.
+     * @return count. */
+    public int count() {
+        return _count;
+    }
+
+    /** Returns the Ith id in sorted order.
+     * @param i index.
+     * @return id. */
+    public ObjectId idAt(int i) {
+        int base = IDS_START + i * ID_BYTES;
+        return new ObjectId(_map.getLong(base), _map.getLong(base + 8),
+                            _map.getInt(base + 16));
+    }
+
+    /** Returns the offset in the pack of the entry for ID, or -1 if ID is
+     *  not in this index.
+     * @param id id.
+     * @return offset. */
+    public long offset(ObjectId id) {
+        int i = lowerBound(id);
+        if (i < _count && compareAt(i, id) == 0) {
+            return _map.getLong(IDS_START + _count * ID_BYTES + i * 8);
+        }
+        return -1;
+    }
+
+    /** Returns every id starting with the hex digits PREFIX, in sorted
+     *  order.
+     * @param prefix p.
+     * @return ids. */
+    public List<String> idsWithPrefix(String prefix) {
+        StringBuilder low = new StringBuilder(prefix);
+        while (low.length() < Utils.UID_LENGTH) {
+            low.append('0');
+        }
+        List<String> result = new ArrayList<>();
+        ObjectId key = ObjectId.parse(low.toString());
+        if (key == null) {
+            return result;
+        }
+        for (int i = lowerBound(key); i < _count; i += 1) {
+            ObjectId id = idAt(i);
+            if (!id.startsWith(prefix)) {
+                break;
+            }
+            result.add(id.toHex());
+        }
+        return result;
+    }
+
+    /** Returns the position of the first id not less than KEY. */
+    private int lowerBound(ObjectId key) {
+        int first = key.firstByte();
+        int lo = first == 0 ? 0 : bucketEnd(first - 1);
+        int hi = bucketEnd(first);
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compareAt(mid, key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Returns the number of ids whose first byte is at most B. */
+    private int bucketEnd(int b) {
+        return _map.getInt(FANOUT_START + 4 * b);
+    }
+
+    /** Compares the Ith id with KEY, reading it from the map as three
+     *  words rather than byte by byte. */
+    private int compareAt(int i, ObjectId key) {
+        int base = IDS_START + i * ID_BYTES;
+        return -key.compareTo(_map.getLong(base), _map.getLong(base + 8),
+                              _map.getInt(base + 16));
+    }
+
+    /** Writes OFFSETS, which maps ids to entry offsets, as the index
+     *  FILE, forcing it to disk.
+     * @param file file.
+     * @param offsets offsets. */
+    static void write(File file, TreeMap<ObjectId, Long> offsets) {
+        int[] fanout = new int[FANOUT];
+        for (ObjectId id : offsets.keySet()) {
+            fanout[id.firstByte()] += 1;
+        }
+        try (FileOutputStream stream = new FileOutputStream(file)) {
+            DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(stream));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(offsets.size());
+            int total = 0;
+            for (int count : fanout) {
+                total += count;
+                out.writeInt(total);
+            }
+            for (ObjectId id : offsets.keySet()) {
+                out.write(id.toRaw());
+            }
+            for (Map.Entry<ObjectId, Long> entry : offsets.entrySet()) {
+                out.writeLong(entry.getValue());
+            }
+            out.flush();
+            stream.getChannel().force(true);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
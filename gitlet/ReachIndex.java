@@ -0,0 +1,215 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Reachability bitmaps over the rows of a commit graph: the bitmap of
+ *  a commit has the bit of its own row and of each of its ancestors'
+ *  set.  Rows are only appended to the graph, so a bitmap stays right
+ *  as commits are added.  Bitmaps are kept for branch heads and for
+ *  selected commits, those whose generation is a multiple of an
+ *  interval that doubles as the graph grows, so that a few dozen at
+ *  most are kept however long the history.  The bitmap of any other
+ *  commit is built by walking back only to the nearest commits that
+ *  have one and or-ing theirs in, so that of a new commit costs about
+ *  as much as copying its parent's.  The file holds each kept bitmap's
+ *  row and commit id, then the bitmap, compressed; one whose id no
+ *  longer matches its row, as after the graph is rebuilt, is ignored.
+ *  @author Harshaan Sall */
+public class ReachIndex {
+
+    /** Magic number at the start of a bitmap file. */
+    private static final int MAGIC = 0x47424d50;
+
+    /** Format version of bitmap files. */
+    private static final int VERSION = 1;
+
+    /** Least interval, in generations, between selected commits. */
+    private static final int MIN_INTERVAL = 128;
+
+    /** Number of selected commits along a history beyond which the
+     *  interval between them is doubled. */
+    private static final int MAX_SELECTED = 64;
+
+    /** File holding the bitmaps. */
+    private final File _file;
+
+    /** Graph whose rows the bitmaps are over. */
+    private final CommitGraph _graph;
+
+    /** Bitmaps by row: those read from the file and those built since. */
+    private HashMap<Integer, Bitmap> _bitmaps;
+
+    /** Whether any bitmap was built since the file was read. */
+    private boolean _dirty;
+
+    /** Constructor for the bitmaps kept in FILE over the rows of
+     *  GRAPH, read on first use. */
+    public ReachIndex(File file, CommitGraph graph) {
+        this._file = file;
+        this._graph = graph;
+    }
+
+    /** Returns the bitmap of ROW: the rows of the commit there and of
+     *  all its ancestors.  It is shared, and must not be changed.  The
+     *  walk it takes stops at commits with a bitmap; selected commits
+     *  it passes are given one on the way, oldest first, so that later
+     *  walks stop there.
+     * @param row r.
+     * @return bitmap. */
+    public Bitmap reach(int row) {
+        Bitmap result = bitmaps().get(row);
+        if (result != null) {
+            return result;
+        }
+        List<Integer> walked = new ArrayList<>();
+        result = walk(row, walked);
+        Collections.sort(walked);
+        int interval = interval();
+        for (int passed : walked) {
+            if (passed != row && _graph.generation(passed) % interval == 0) {
+                _bitmaps.put(passed, walk(passed, new ArrayList<>()));
+            }
+        }
+        _bitmaps.put(row, result);
+        _dirty = true;
+        return result;
+    }
+
+    /** Writes the bitmaps of the rows HEADS, and of selected commits,
+     *  to the file if any were built, dropping all others.
+     * @param heads h. */
+    public void flush(Collection<Integer> heads) {
+        if (!_dirty) {
+            return;
+        }
+        int interval = interval();
+        File tmp = new File(_file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            for (Map.Entry<Integer, Bitmap> entry : _bitmaps.entrySet()) {
+                int row = entry.getKey();
+                if (heads.contains(row)
+                    || _graph.generation(row) % interval == 0) {
+                    out.writeInt(row);
+                    out.write(ObjectId.rawOf(_graph.idAt(row)));
+                    entry.getValue().write(out);
+                }
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), _file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        _dirty = false;
+    }
+
+    /** Getter for whether bitmaps were built that flush would write.
+     * @return dirty. */
+    public boolean isDirty() {
+        return this._dirty;
+    }
+
+    /** Deletes the file of this index and forgets every bitmap, so that
+     *  they are rebuilt as they are next used. */
+    public void clear() {
+        _file.delete();
+        _bitmaps = null;
+        _dirty = false;
+    }
+
+    /** Returns the bitmap of ROW, built by walking back from it to
+     *  commits with a bitmap, and adds each row walked past to WALKED. */
+    private Bitmap walk(int row, List<Integer> walked) {
+        Bitmap result = new Bitmap();
+        ArrayDeque<Integer> todo = new ArrayDeque<>();
+        todo.push(row);
+        while (!todo.isEmpty()) {
+            int next = todo.pop();
+            if (result.get(next)) {
+                continue;
+            }
+            Bitmap known = _bitmaps.get(next);
+            if (known != null) {
+                result.or(known);
+                continue;
+            }
+            result.set(next);
+            walked.add(next);
+            for (int parent : new int[] {_graph.parent(next),
+                                         _graph.mergeParent(next)}) {
+                if (parent >= 0 && !result.get(parent)) {
+                    todo.push(parent);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Returns the interval, in generations, between selected commits:
+     *  the least power of two of at least MIN_INTERVAL giving no more
+     *  than MAX_SELECTED of them along the longest history in the
+     *  graph.  Each doubling keeps half of those already selected. */
+    private int interval() {
+        int interval = MIN_INTERVAL;
+        int size = _graph.size();
+        while ((long) interval * MAX_SELECTED < size) {
+            interval *= 2;
+        }
+        return interval;
+    }
+
+    /** Returns the bitmaps by row, reading the file if needed and
+     *  ignoring a missing or unreadable file, and any bitmap whose row
+     *  no longer holds its commit. */
+    private HashMap<Integer, Bitmap> bitmaps() {
+        if (_bitmaps != null) {
+            return _bitmaps;
+        }
+        _bitmaps = new HashMap<>();
+        if (!_file.isFile()) {
+            return _bitmaps;
+        }
+        ByteBuffer in;
+        try {
+            in = ByteBuffer.wrap(Files.readAllBytes(_file.toPath()));
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        if (in.remaining() < 8 || in.getInt() != MAGIC
+            || in.getInt() != VERSION) {
+            return _bitmaps;
+        }
+        int size = _graph.size();
+        byte[] raw = new byte[ObjectId.BYTES];
+        while (in.hasRemaining()) {
+            int row = in.getInt();
+            in.get(raw);
+            Bitmap bitmap = Bitmap.read(in);
+            if (row < size && _graph.idAt(row).equals(ObjectId.toHex(raw))) {
+                _bitmaps.put(row, bitmap);
+            }
+        }
+        return _bitmaps;
+    }
+}
@@ -0,0 +1,91 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/** Tests of ReachIndex against the ancestors of each commit of random
+ *  histories, found by brute force.
+ *  @author Harshaan Sall */
+public class ReachIndexTest {
+
+    /** Number of commits in the histories tested, enough for a few
+     *  selected commits along each. */
+    private static final int SIZE = 1500;
+
+    /** Checks that INDEX gives each row of a graph the ancestors ANC,
+     *  asking for the rows in an order shuffled by RAND. */
+    private static void checkAll(ReachIndex index, BitSet[] anc,
+                                 Random rand) {
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < anc.length; row += 1) {
+            rows.add(row);
+        }
+        Collections.shuffle(rows, rand);
+        for (int row : rows) {
+            BitmapTest.check(anc[row], index.reach(row));
+        }
+    }
+
+    /** Every commit's bitmap holds exactly its ancestors, whether built
+     *  from scratch or from the bitmaps of others. */
+    @Test
+    public void reachMatchesBruteForce() {
+        Random rand = new Random(1);
+        CommitGraph graph = CommitGraphTest.tempGraph();
+        CommitGraphTest.randomHistory(graph, rand, SIZE);
+        ReachIndex index = new ReachIndex(CommitGraphTest.tempFile(), graph);
+        checkAll(index, CommitGraphTest.ancestors(graph), rand);
+        assertTrue(index.isDirty());
+    }
+
+    /** Bitmaps flushed to the file are read back, and still give every
+     *  commit its ancestors after more commits are added. */
+    @Test
+    public void flushAndReload() {
+        Random rand = new Random(2);
+        CommitGraph graph = CommitGraphTest.tempGraph();
+        CommitGraphTest.randomHistory(graph, rand, SIZE);
+        File file = CommitGraphTest.tempFile();
+        ReachIndex index = new ReachIndex(file, graph);
+        List<Integer> heads = List.of(SIZE - 1, SIZE / 2);
+        for (int head : heads) {
+            index.reach(head);
+        }
+        index.flush(heads);
+        assertFalse(index.isDirty());
+        assertTrue(file.length() > 8);
+        CommitGraphTest.randomHistory(graph, rand, 200);
+        ReachIndex copy = new ReachIndex(file, graph);
+        checkAll(copy, CommitGraphTest.ancestors(graph), rand);
+        copy.clear();
+        assertFalse(file.exists());
+    }
+
+    /** Bitmaps whose rows no longer hold the commits they were built
+     *  for, as after the graph is rebuilt differently, are ignored. */
+    @Test
+    public void staleBitmapsIgnored() {
+        Random rand = new Random(3);
+        CommitGraph graph = CommitGraphTest.tempGraph();
+        CommitGraphTest.randomHistory(graph, rand, SIZE);
+        File file = CommitGraphTest.tempFile();
+        ReachIndex index = new ReachIndex(file, graph);
+        checkAll(index, CommitGraphTest.ancestors(graph), rand);
+        List<Integer> heads = new ArrayList<>();
+        for (int row = 0; row < SIZE; row += 97) {
+            heads.add(row);
+        }
+        index.flush(heads);
+        CommitGraph other = CommitGraphTest.tempGraph();
+        CommitGraphTest.randomHistory(other, rand, SIZE);
+        checkAll(new ReachIndex(file, other),
+                 CommitGraphTest.ancestors(other), rand);
+    }
+}
@@ -1,17 +1,41 @@
 package gitlet;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.sql.Timestamp;
-import java.util.Date;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Formatter;
+import java.util.Locale;
+import java.util.NoSuchElementException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
-import java.util.Collection;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.Objects;
 
 /** The repo class contains all gitlet methods and structures
  * as static variables.
@@ -41,9 +65,13 @@ public class Repo {
     private static final File STAGEDREMOVEFILE
             = Utils.join(STAGING_DIRECTORY, "removalDirectory");
 
-    /** Path for serialized file that contains every commit. */
-    private static final File COMMITS
-            = Utils.join(COMMIT_DIRECTORY, "prevCommits");
+    /** Directory containing one file per stored object. */
+    private static final File OBJECTS_DIRECTORY
+            = Utils.join(GITLET_DIRECTORY, "objects");
+
+    /** Content-addressed store holding every commit and blob. */
+    private static final ObjectStore OBJECTS
+            = new ObjectStore(OBJECTS_DIRECTORY);
 
     /** Path for serialized file that contains
      * commit history in commit directory. */
@@ -58,38 +86,80 @@ public class Repo {
     private static final File HEADPOINTER
             = Utils.join(COMMIT_DIRECTORY, "head");
 
-    /** Branch path. */
+    /** Path for the serialized map of every commit kept by versions
+     * before the object store, read only to migrate them. */
+    private static final File COMMITS
+            = Utils.join(COMMIT_DIRECTORY, "prevCommits");
+
+    /** Path for the serialized branch histories kept by versions before
+     * the object store, removed when migrating them. */
     private static final File BRANCHHISTFILE
             = Utils.join(COMMIT_DIRECTORY, "branchHist");
 
-    /** Empty hashmap of file blobs for initial commit. */
-    private static final HashMap<String, Blob> EMPTYFILES
-            = new HashMap<>();
+    /** Path for the journal of changes made since the checkpoints. */
+    private static final File JOURNALFILE
+            = Utils.join(GITLET_DIRECTORY, "journal");
 
-    /** This static variable is the head pointer. */
-    private static String  _head;
+    /** Commit graph, giving the parents, generation number and time of
+     * each commit without reading it. */
+    private static final CommitGraph GRAPH
+            = new CommitGraph(Utils.join(GITLET_DIRECTORY, "commit-graph"));
 
-    /** This static variable contains the files staged for addition. */
-    private static HashMap<String, Blob>
-            stagedAdd = new HashMap<String, Blob>();;
+    /** Reachability bitmaps of branch heads and selected commits. */
+    private static final ReachIndex REACH
+            = new ReachIndex(Utils.join(GITLET_DIRECTORY, "bitmaps"), GRAPH);
 
-    /** This static variable contains the files staged for removal. */
-    private static HashMap<String, Blob> stagedRemove
-            = new HashMap<String, Blob>();;
+    /** Index of the commit graph's rows by commit time. */
+    private static final TimeIndex TIMES
+            = new TimeIndex(Utils.join(GITLET_DIRECTORY, "time-index"), GRAPH);
 
-    /** This static variable contains every commit object created.  */
-    private static HashMap<String, Commit>
-            _everyCommit =  new HashMap<String, Commit>();
+    /** Checkpoint files, indexed by the component they hold. */
+    private static final File[] CHECKPOINTS = {
+        STAGEDADDFILE, STAGEDREMOVEFILE, HISTFILE, BRANCHFILE, HEADPOINTER
+    };
 
-    /** This static variable contains every branch object created.  */
-    private static HashMap<String, Branch> _branches = new HashMap<>();;
+    /** Index caching the blob id and stat data of working files. */
+    private static final DirCache DIRCACHE
+            = new DirCache(Utils.join(GITLET_DIRECTORY, "index"), CWD);
 
-    /** This static variable contains the commit history for a branch.  */
-    private static LinkedList<String> _branchCommitHist = new LinkedList<>();;
+    /** Directory of the filesystem monitor's files. */
+    private static final File MONITOR_DIRECTORY
+            = Utils.join(GITLET_DIRECTORY, "monitor");
 
-    /** This static variable contains the commit history.   */
-    private static LinkedList<String> _history
-            = new LinkedList<>();;
+    /** Filesystem monitor of the working directory. */
+    private static final Monitor MONITOR
+            = new Monitor(MONITOR_DIRECTORY, CWD, ".gitlet");
+
+    /** Every file in the working directory outside .gitlet, scanned
+     * incrementally while the monitor runs. */
+    private static final WorkTree WORKTREE
+            = new WorkTree(CWD, MONITOR,
+                           Utils.join(MONITOR_DIRECTORY, "snapshot"),
+                           ".gitlet");
+
+    /** The repository state, loaded a component at a time. */
+    private static final RepoState STATE
+            = new RepoState(JOURNALFILE, CHECKPOINTS);
+
+    /** Default age, in seconds, below which gc keeps even unreachable
+     * objects: two weeks. */
+    private static final long GC_GRACE = 14 * 24 * 60 * 60;
+
+    /** Format of the dates shown by log, in the zone of each commit. */
+    private static final DateTimeFormatter LOG_DATE
+            = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss yyyy Z",
+                    Locale.getDefault(Locale.Category.FORMAT));
+
+    /** Shortest abbreviation accepted for a commit id. */
+    private static final int MIN_PREFIX = 4;
+
+    /** Empty hashmap of file blobs for initial commit. */
+    private static final HashMap<String, String> EMPTYFILES
+            = new HashMap<>();
+
+    /** This static variable caches the commit objects read so far.  */
+    private static HashMap<ObjectId, Commit>
+            _loadedCommits =  new HashMap<ObjectId, Commit>();
 
 
     /** Creates a new Gitlet version-control system in the current
@@ -103,30 +173,25 @@ public class Repo {
                     + "system already exists in the current directory.");
         }
         setupPersistence();
-        Date initialTime = new Date();
-        initialTime.setTime(0);
-        java.sql.Timestamp time0
-                = new java.sql.Timestamp(initialTime.getTime());
         Commit initialCommit
-                = new Commit("initial commit",
-                time0.toString(), EMPTYFILES, null);
+                = new Commit("initial commit", 0, Commit.localOffset(0),
+                Tree.of(EMPTYFILES), null, null);
         initialCommit.setUniqueID();
-        _everyCommit.put(initialCommit.getUniqueID(), initialCommit);
-        LinkedList<String> masterCommitHist = new LinkedList<>();
-        Branch masterBranch
-                = new Branch(initialCommit.getUniqueID(), masterCommitHist);
-        masterBranch.addCommit(initialCommit.getUniqueID());
-        _branchCommitHist.add(initialCommit.getUniqueID());
-        _branches.put("master", masterBranch);
-        _history.add(initialCommit.getUniqueID());
-        _head = "master";
-        writeAllobjects();
+        putCommit(initialCommit);
+        graphRow(initialCommit.getUniqueID());
+        Branch masterBranch = new Branch(initialCommit.getUniqueID());
+        HashMap<String, Branch> branches = new HashMap<>();
+        branches.put("master", masterBranch);
+        LinkedList<String> history = new LinkedList<>();
+        history.add(initialCommit.getUniqueID());
+        STATE.create("master", branches, history);
+        STATE.checkpoint();
     }
 
     /** Helper method to return active branch.
      * @return active branch.*/
     public static Branch getActiveBranch() {
-        return _branches.get(_head);
+        return STATE.branches().get(STATE.head());
     }
 
     /** Helper method that returns the latest
@@ -134,19 +199,209 @@ public class Repo {
      * @param branch br.
      * @return commitid.*/
     public static Commit returnHeadCommit(String branch) {
-        String comID = _branches.get(branch).getID();
-        return _everyCommit.get(comID);
+        String comID = STATE.branches().get(branch).getID();
+        return getCommit(comID);
+    }
+
+    /** Helper method that reads a single commit from the object store.
+     * @param id full commit id.
+     * @return commit, or null if there is no such commit.*/
+    public static Commit getCommit(String id) {
+        ObjectId key = ObjectId.parse(id);
+        if (key == null) {
+            return null;
+        }
+        Commit com = _loadedCommits.get(key);
+        if (com == null) {
+            com = OBJECTS.getCommit(id);
+            if (com != null) {
+                _loadedCommits.put(key, com);
+            }
+        }
+        return com;
+    }
+
+    /** Helper method that writes a new commit to the object store.
+     * @param com commit.*/
+    public static void putCommit(Commit com) {
+        OBJECTS.putCommit(com.getUniqueID(), com);
+        _loadedCommits.put(ObjectId.fromHex(com.getUniqueID()), com);
+    }
+
+    /** Helper method that reads the contents of a stored blob.
+     * @param blobID id.
+     * @return content.*/
+    public static String getBlobContents(String blobID) {
+        return new String(OBJECTS.readBlob(blobID), StandardCharsets.UTF_8);
+    }
+
+    /** Helper method that reads the contents of file NAME in COM.
+     * @param com commit.
+     * @param name n.
+     * @return content.*/
+    public static String getFileContents(Commit com, String name) {
+        return getBlobContents(com.getFile(name));
     }
 
-    /** Helper method that serializes all static variables to keep state. */
-    public static void writeAllobjects() {
-        Utils.writeObject(STAGEDADDFILE, stagedAdd);
-        Utils.writeObject(STAGEDREMOVEFILE, stagedRemove);
-        Utils.writeObject(COMMITS, _everyCommit);
-        Utils.writeObject(HISTFILE, _history);
-        Utils.writeObject(BRANCHFILE, _branches);
-        Utils.writeObject(HEADPOINTER, _head);
-        Utils.writeObject(BRANCHHISTFILE, _branchCommitHist);
+    /** Helper method that expands an abbreviated commit id of
+     * MIN_PREFIX to UID_LENGTH hex digits, throwing a GitletException
+     * listing the candidates if more than one commit matches.  Candidates
+     * are told apart by their type bytes alone; none is decoded.
+     * @param iD full or abbreviated id.
+     * @return full id, or ID itself if it names no commit.*/
+    public static String resolveCommitID(String iD) {
+        if (iD.length() >= Utils.UID_LENGTH || iD.length() < MIN_PREFIX
+                || !iD.matches("[0-9a-f]+")) {
+            return iD;
+        }
+        List<String> matches = new ArrayList<>();
+        for (String candidate : OBJECTS.idsWithPrefix(iD)) {
+            if (OBJECTS.isCommit(candidate)) {
+                matches.add(candidate);
+            }
+        }
+        if (matches.size() > 1) {
+            throw Utils.error("Commit id %s is ambiguous; candidates are:%n%s",
+                    iD, String.join(System.lineSeparator(), matches));
+        }
+        return matches.isEmpty() ? iD : matches.get(0);
+    }
+
+    /** Helper method that returns the row of commit ID in the commit
+     * graph.  A commit missing from the graph, as every commit of a
+     * repository made by an earlier version is, is added, after any of
+     * its ancestors that are missing too; only those are read.
+     * @param id commit id.
+     * @return row.*/
+    private static int graphRow(String id) {
+        ArrayDeque<String> todo = new ArrayDeque<>();
+        todo.push(id);
+        while (!todo.isEmpty()) {
+            String next = todo.peek();
+            if (GRAPH.rowOf(next) >= 0) {
+                todo.pop();
+                continue;
+            }
+            Commit com = getCommit(next);
+            String parent = com.getParent();
+            String mergeParent = com.getMergeParent();
+            if (parent != null && GRAPH.rowOf(parent) < 0) {
+                todo.push(parent);
+            } else if (mergeParent != null && GRAPH.rowOf(mergeParent) < 0) {
+                todo.push(mergeParent);
+            } else {
+                todo.pop();
+                GRAPH.add(next, parent == null ? -1 : GRAPH.rowOf(parent),
+                        mergeParent == null ? -1 : GRAPH.rowOf(mergeParent),
+                        com.getTime());
+            }
+        }
+        return GRAPH.rowOf(id);
+    }
+
+    /** Helper method that readies the repository state for a command,
+     * first migrating a repository made by an earlier version.  The
+     * state itself is loaded lazily, one component at a time. */
+    public static void open() {
+        if (LegacyFormat.detect(CHECKPOINTS[RepoState.HEAD])) {
+            migrate();
+        }
+    }
+
+    /** Helper method that rewrites the state of a repository made by an
+     * earlier version, which used Java serialization, in the current
+     * formats.  Each checkpoint is converted only if it is still in the
+     * legacy format, and the head pointer is converted last, so a
+     * migration cut short is finished by the next command. */
+    private static void migrate() {
+        OBJECTS.setup();
+        if (COMMITS.exists()) {
+            Map<?, ?> commits = (Map<?, ?>) LegacyFormat.read(COMMITS);
+            for (Object com : commits.values()) {
+                putCommit(((LegacyFormat.LegacyCommit) com).toCommit(OBJECTS));
+            }
+        }
+        if (!JOURNALFILE.exists()) {
+            new Journal(JOURNALFILE).create(0);
+        }
+        for (int c = 0; c < CHECKPOINTS.length; c += 1) {
+            if (!LegacyFormat.detect(CHECKPOINTS[c])) {
+                continue;
+            }
+            long seq = 0;
+            Object val = LegacyFormat.read(CHECKPOINTS[c]);
+            if (val instanceof LegacyFormat.LegacyCheckpoint) {
+                seq = ((LegacyFormat.LegacyCheckpoint) val).getSeq();
+                val = ((LegacyFormat.LegacyCheckpoint) val).getValue();
+            }
+            new Checkpoint(seq, migrated(c, val)).write(CHECKPOINTS[c]);
+        }
+        COMMITS.delete();
+        BRANCHHISTFILE.delete();
+    }
+
+    /** Helper method that encodes VAL, the legacy form of COMPONENT.
+     * @param component c.
+     * @param val v.
+     * @return bytes.*/
+    @SuppressWarnings("unchecked")
+    private static byte[] migrated(int component, Object val) {
+        switch (component) {
+        case RepoState.ADDITIONS: case RepoState.REMOVALS:
+            return Codec.encodeFiles(
+                    LegacyFormat.toFiles((Map<?, ?>) val, OBJECTS));
+        case RepoState.HISTORY:
+            return Codec.encodeIds((List<String>) val);
+        case RepoState.BRANCHES:
+            return Codec.encodeBranches(
+                    LegacyFormat.toBranches((Map<?, ?>) val));
+        default:
+            return Codec.encodeString((String) val);
+        }
+    }
+
+    /** Helper method that records a change of kind TYPE with arguments
+     * ARGS in the journal and applies it to the loaded state.
+     * @param type t.
+     * @param args a.*/
+    public static void record(String type, String... args) {
+        STATE.record(type, args);
+    }
+
+    /** Helper method that forces the journal to disk once the command
+     * is done, compacting it when it has grown long, and saves the
+     * index, the commit graph and the reachability bitmaps of the branch
+     * heads if they changed. */
+    public static void persist() {
+        STATE.flush();
+        DIRCACHE.write();
+        if (REACH.isDirty()) {
+            HashSet<Integer> heads = new HashSet<>();
+            for (Branch br : STATE.branches().values()) {
+                heads.add(graphRow(br.getID()));
+            }
+            REACH.flush(heads);
+        }
+        GRAPH.flush();
+    }
+
+    /** Helper method that writes the contents of blob ID to the working
+     * file NAME and records the file in the index.
+     * @param name n.
+     * @param id blob id.*/
+    private static void writeFile(String name, String id) {
+        File file = Utils.join(CWD, name);
+        file.getParentFile().mkdirs();
+        OBJECTS.copyBlob(id, file);
+        DIRCACHE.update(name, id);
+    }
+
+    /** Helper method that deletes the working file NAME, and any
+     * directories it leaves empty, and drops it from the index.
+     * @param name n.*/
+    private static void deleteFile(String name) {
+        WORKTREE.delete(name);
+        DIRCACHE.forget(name);
     }
 
     /** Helper method that creates necessary directories. */
@@ -160,93 +415,352 @@ public class Repo {
         if (!(COMMIT_DIRECTORY.exists())) {
             COMMIT_DIRECTORY.mkdirs();
         }
+        OBJECTS.setup();
     }
 
-   /** Adds a copy of the file as it currently exists to the
-     * staging area.
-    * @param name n.*/
-    @SuppressWarnings("unchecked")
-    public static void add(String name) {
-        File newFile = Utils.join(CWD, name);
-        boolean exists = newFile.exists();
-        if (!exists) {
-            System.out.println("File does not exist.");
+    /** Adds copies of the files named by PATHS, as they currently
+     * exist, to the staging area.  A path may name a file, a directory,
+     * whose files are all added, or a glob pattern such as "src/*.java"
+     * matched against the working files; "-A" adds every working file.
+     * For directories, patterns and -A, tracked files that have been
+     * deleted are staged for removal.  The files are hashed and stored
+     * in parallel, and the staging area is loaded and saved once.
+     * @param paths p.*/
+    public static void add(String... paths) {
+        if (paths.length == 0) {
+            System.out.println("Incorrect operands.");
             return;
         }
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _history = Utils.readObject(HISTFILE, LinkedList.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        String content = Utils.readContentsAsString(newFile);
-        Blob newFileBlob = new Blob(name, content);
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        if (stagedAdd.containsKey(name)) {
-            stagedAdd.remove(name);
-            stagedAdd.put(name, newFileBlob);
-        } else {
-            stagedAdd.put(name, newFileBlob);
-            Branch active = getActiveBranch();
-            String activeBranchID = active.getID();
-            Commit latestCommit = _everyCommit.get(activeBranchID);
-            HashMap<String, Blob> tracked = latestCommit.getFiles();
-            stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-            if (tracked.containsKey(name)) {
-                Blob prevBlob = latestCommit.getFiles().get(name);
-                if (prevBlob.getContent().equals(content)) {
-                    stagedAdd.remove(name);
-                    stagedRemove.remove(name);
+        TreeMap<String, BasicFileAttributes> files = new TreeMap<>();
+        TreeSet<String> deleted = new TreeSet<>();
+        TreeMap<String, BasicFileAttributes> tree = null;
+        for (String path : paths) {
+            path = path.replaceAll("^(\\./)+|/+$", "");
+            File file = Utils.join(CWD, path);
+            Predicate<String> scope;
+            if (path.equals("-A") || path.equals(".")) {
+                scope = name -> true;
+            } else if (file.isDirectory()) {
+                String prefix = path + WorkTree.SEPARATOR;
+                scope = name -> name.startsWith(prefix);
+            } else if (file.isFile()) {
+                files.put(path, stat(file));
+                continue;
+            } else if (path.matches(".*[*?\\[{].*")) {
+                PathMatcher glob = FileSystems.getDefault()
+                        .getPathMatcher("glob:" + path);
+                scope = name -> glob.matches(Paths.get(name));
+            } else {
+                System.out.println("File does not exist.");
+                return;
+            }
+            if (tree == null) {
+                open();
+                tree = WORKTREE.scan();
+            }
+            for (Map.Entry<String, BasicFileAttributes> entry
+                    : tree.entrySet()) {
+                if (scope.test(entry.getKey())) {
+                    files.put(entry.getKey(), entry.getValue());
+                }
+            }
+            for (String name : stagedOrTracked()) {
+                if (scope.test(name) && !tree.containsKey(name)) {
+                    deleted.add(name);
                 }
             }
         }
-        writeAllobjects();
+        open();
+        for (Map.Entry<String, String> file : storeAll(files).entrySet()) {
+            stage(file.getKey(), file.getValue());
+        }
+        for (String name : deleted) {
+            unstage(name);
+        }
+    }
+
+    /** Helper method that lists the files tracked by the head commit or
+     * staged for addition, other than those staged for removal.
+     * @return names.*/
+    private static Set<String> stagedOrTracked() {
+        TreeSet<String> result = new TreeSet<>(
+                returnHeadCommit(STATE.head()).getallFileNames());
+        result.removeAll(STATE.removals().keySet());
+        result.addAll(STATE.additions().keySet());
+        return result;
+    }
+
+    /** Helper method that stores the working FILES, whose attributes
+     * were read before this call, as blobs.  Files the index proves
+     * unchanged are not read; the rest are hashed and stored in
+     * parallel on a pool with a thread per processor.
+     * @param files f.
+     * @return blob ids by name.*/
+    private static TreeMap<String, String> storeAll(
+            TreeMap<String, BasicFileAttributes> files) {
+        TreeMap<String, String> ids = new TreeMap<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, BasicFileAttributes> file
+                : files.entrySet()) {
+            String id = DIRCACHE.cachedId(file.getKey(), file.getValue());
+            if (id != null && OBJECTS.contains(id)) {
+                ids.put(file.getKey(), id);
+            } else {
+                changed.add(file.getKey());
+            }
+        }
+        List<String> stored = inParallel(changed,
+            name -> OBJECTS.putBlob(Utils.join(CWD, name)));
+        for (int i = 0; i < changed.size(); i += 1) {
+            ids.put(changed.get(i), stored.get(i));
+        }
+        for (String name : changed) {
+            DIRCACHE.update(name, files.get(name), ids.get(name));
+        }
+        return ids;
+    }
+
+    /** Helper method that applies TASK to each of NAMES on a pool with
+     * a thread per processor, returning the results in the order of
+     * NAMES.
+     * @param names n.
+     * @param task t.
+     * @return results.*/
+    private static List<String> inParallel(List<String> names,
+                                           Function<String, String> task) {
+        List<String> results = new ArrayList<>();
+        int threads = Math.min(names.size(),
+                Runtime.getRuntime().availableProcessors());
+        if (threads <= 1) {
+            for (String name : names) {
+                results.add(task.apply(name));
+            }
+            return results;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> pending = new ArrayList<>();
+            for (String name : names) {
+                pending.add(pool.submit(() -> task.apply(name)));
+            }
+            for (Future<String> result : pending) {
+                results.add(result.get());
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+        return results;
+    }
+
+    /** Helper method that returns the attributes of FILE.
+     * @param file f.
+     * @return attributes.*/
+    private static BasicFileAttributes stat(File file) {
+        try {
+            return Files.readAttributes(file.toPath(),
+                    BasicFileAttributes.class);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Helper method that stages the working file NAME, whose contents
+     * are the blob ID, unless it matches the head commit.
+     * @param name n.
+     * @param id blob id.*/
+    private static void stage(String name, String id) {
+        if (STATE.removals().containsKey(name)) {
+            record("unremove", name);
+        }
+        if (STATE.additions().containsKey(name)) {
+            if (!id.equals(STATE.additions().get(name))) {
+                record("stage", name, id);
+            }
+        } else {
+            Commit latestCommit = getCommit(getActiveBranch().getID());
+            if (!id.equals(latestCommit.getFile(name))) {
+                record("stage", name, id);
+            }
+        }
+    }
+
+    /** Helper method that stages the deletion of the working file NAME:
+     * it is unstaged if staged for addition, and staged for removal if
+     * the head commit tracks it.
+     * @param name n.*/
+    private static void unstage(String name) {
+        if (STATE.additions().containsKey(name)) {
+            record("unstage", name);
+        }
+        String tracked = returnHeadCommit(STATE.head()).getFile(name);
+        if (tracked != null) {
+            record("remove", name, tracked);
+        }
     }
 
     /** Saves a snapshot of tracked files in the current commit and staging area
      * so they can be restored at a later time, creating a new commit.
      * @param message m.*/
-    @SuppressWarnings("unchecked")
     public static void commit(String message) {
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _history = Utils.readObject(HISTFILE, LinkedList.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        _branchCommitHist = Utils.readObject(BRANCHHISTFILE, LinkedList.class);
-        if (stagedAdd.isEmpty() && stagedRemove.isEmpty()) {
+        commit(message, null);
+    }
+
+    /** Helper method that makes a commit with MESSAGE whose second
+     * parent is MERGEPARENT, unless that is null, and adds it to the
+     * commit graph.
+     * @param message m.
+     * @param mergeParent p.*/
+    private static void commit(String message, String mergeParent) {
+        open();
+        if (STATE.additions().isEmpty() && STATE.removals().isEmpty()) {
             System.out.println("No changes added to the commit.");
         }
         if (message.isEmpty()) {
             System.out.println("Please enter a commit message.");
         }
-        String parentCommitID = getActiveBranch().getID();
-        Commit lastCommit = returnHeadCommit(_head);
-        for (String filename: lastCommit.getallFileNames()) {
-            if (!stagedAdd.containsKey(filename)) {
-                stagedAdd.put(filename, lastCommit.getFile(filename));
+        Commit lastCommit = returnHeadCommit(STATE.head());
+        long time = System.currentTimeMillis();
+        Commit com1 = lastCommit.child(message, time, Commit.localOffset(time),
+                mergeParent, STATE.additions(), STATE.removals().keySet());
+        putCommit(com1);
+        graphRow(com1.getUniqueID());
+        record("commit", STATE.head(), com1.getUniqueID());
+        if (OBJECTS.needsPack()) {
+            packObjects();
+        }
+    }
+
+    /** Bundles every stored object into a single delta-compressed
+     * packfile. */
+    public static void pack() {
+        open();
+        packObjects();
+    }
+
+    /** Helper method that packs the object store, telling it the file
+     * name each blob was most recently stored under so that versions of
+     * the same file are delta-encoded against each other, and which
+     * objects are reachable, so that the rest are left loose to age. */
+    public static void packObjects() {
+        OBJECTS.pack(nameHints(), reachable());
+    }
+
+    /** Helper method that maps each object id to the file name it was
+     * most recently stored under, newest first, for packing.
+     * @return hints.*/
+    private static Map<String, String> nameHints() {
+        LinkedHashMap<String, String> names = new LinkedHashMap<>();
+        for (Map.Entry<String, String> staged
+                : STATE.additions().entrySet()) {
+            names.putIfAbsent(staged.getValue(), staged.getKey());
+        }
+        HashSet<ObjectId> seen = new HashSet<>();
+        Iterator<String> newestFirst
+                = STATE.history().descendingIterator();
+        while (newestFirst.hasNext()) {
+            Commit com = getCommit(newestFirst.next());
+            names.putIfAbsent(com.getUniqueID(), "");
+            com.getTree().walk("", seen,
+                    (name, id) -> names.putIfAbsent(id, name));
+        }
+        return names;
+    }
+
+    /** Runs the filesystem monitor until it is stopped, or with OPTIONS
+     * of --stop, stops it.
+     * @param options o.*/
+    public static void monitor(String... options) {
+        if (!GITLET_DIRECTORY.exists()) {
+            System.out.println("Not in an initialized Gitlet directory.");
+            return;
+        }
+        if (options.length == 0) {
+            MONITOR.run();
+        } else if (options.length == 1 && options[0].equals("--stop")) {
+            MONITOR.stop();
+        } else {
+            System.out.println("Incorrect operands.");
+        }
+    }
+
+    /** Removes the commits and blobs that cannot be reached from any
+     * branch or from the staging area, then repacks the rest.  OPTIONS
+     * may hold --dry-run, to only report what would be removed, and
+     * --grace=SECONDS, to keep unreachable objects younger than that
+     * (two weeks by default).
+     * @param options o.*/
+    public static void gc(String... options) {
+        open();
+        boolean dryRun = false;
+        long grace = GC_GRACE;
+        for (String option : options) {
+            if (option.equals("--dry-run")) {
+                dryRun = true;
+            } else if (option.matches("--grace=[0-9]+")) {
+                grace = Long.parseLong(option.substring(8));
+            } else {
+                System.out.println("Incorrect operands.");
+                return;
             }
         }
-        for (String filename: stagedRemove.keySet()) {
-            if (stagedAdd.containsKey(filename)) {
-                stagedAdd.remove(filename);
+        long cutoff = System.currentTimeMillis() - grace * 1000;
+        Set<ObjectId> live = reachable();
+        Map<ObjectId, Long> garbage = OBJECTS.garbage(live, cutoff);
+        long bytes = 0;
+        for (long size : garbage.values()) {
+            bytes += size;
+        }
+        if (dryRun) {
+            System.out.println("Would remove " + garbage.size()
+                    + " objects, reclaiming " + bytes + " bytes.");
+            return;
+        }
+        boolean pruned = false;
+        for (String id : new ArrayList<>(STATE.history())) {
+            if (garbage.containsKey(ObjectId.fromHex(id))) {
+                record("prune", id);
+                pruned = true;
             }
         }
-        Date date1 = new Date();
-        java.sql.Timestamp time1
-                = new java.sql.Timestamp(date1.getTime());
-        HashMap<String, Blob> newComFiles
-                = (HashMap<String, Blob>) stagedAdd.clone();
-        Commit com1 = new Commit(message, time1.toString(),
-                newComFiles, parentCommitID);
-        com1.setUniqueID();
-        getActiveBranch().updatePointer(com1.getUniqueID());
-        getActiveBranch().addCommit(com1.getUniqueID());
-        _branchCommitHist.add(com1.getUniqueID());
-        _everyCommit.put(com1.getUniqueID(), com1);
-        _history.add(com1.getUniqueID());
-        stagedAdd.clear();
-        stagedRemove.clear();
-        writeAllobjects();
+        if (pruned) {
+            GRAPH.clear();
+            TIMES.clear();
+            REACH.clear();
+        }
+        OBJECTS.sweep(garbage.keySet(), nameHints(), live, cutoff);
+        System.out.println("Removed " + garbage.size()
+                + " objects, reclaiming " + bytes + " bytes.");
+    }
+
+    /** Helper method that marks every object reachable from a branch,
+     * through the branch head's ancestors, both parents of a merge
+     * included, or from the staging area.  The commits are the union of
+     * the heads' reachability bitmaps, so finding them reads none; each
+     * is read only for its tree.
+     * @return ids.*/
+    private static Set<ObjectId> reachable() {
+        HashSet<ObjectId> live = new HashSet<>();
+        HashSet<ObjectId> trees = new HashSet<>();
+        Bitmap commits = new Bitmap();
+        for (Branch br : STATE.branches().values()) {
+            commits.or(REACH.reach(graphRow(br.getID())));
+        }
+        for (int row = commits.nextSetBit(0); row >= 0;
+             row = commits.nextSetBit(row + 1)) {
+            String id = GRAPH.idAt(row);
+            live.add(ObjectId.fromHex(id));
+            getCommit(id).getTree().walk("", trees,
+                (name, obj) -> live.add(ObjectId.fromHex(obj)));
+        }
+        for (String id : STATE.additions().values()) {
+            live.add(ObjectId.fromHex(id));
+        }
+        for (String id : STATE.removals().values()) {
+            live.add(ObjectId.fromHex(id));
+        }
+        return live;
     }
 
     /** Takes the version of the file as it exists in the
@@ -257,8 +771,8 @@ public class Repo {
      * The new version of the file is not staged.
      * @param filename f.*/
     public static void checkout(String filename) {
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        checkout(_head, filename);
+        open();
+        checkout(STATE.head(), filename);
     }
 
     /** Takes the version of the file as it exists
@@ -269,39 +783,23 @@ public class Repo {
      * of the file is not staged.
      * @param iD id.
      * @param filename n.*/
-    @SuppressWarnings("unchecked")
     public static void checkout(String iD, String filename) {
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _history = Utils.readObject(HISTFILE, LinkedList.class);
-        List<String> commitIds = new ArrayList<>(_everyCommit.keySet());
-        for (String comIDs : commitIds) {
-            String abr = comIDs.substring(0, 8);
-            if (iD.equals(abr)) {
-                iD = comIDs;
-            }
-        }
-        if (iD.equals(_head)) {
-            Commit headCommit = returnHeadCommit(_head);
+        open();
+        if (iD.equals(STATE.head())) {
+            Commit headCommit = returnHeadCommit(STATE.head());
             if (headCommit.containsFile(filename)) {
-                String prevState = headCommit.getFileContents(filename);
-                Utils.writeContents(Utils.join(CWD, filename), prevState);
+                writeFile(filename, headCommit.getFile(filename));
             }
         } else {
-            ArrayList<String> comIds = new ArrayList<>();
-            for (Commit com : _everyCommit.values()) {
-                comIds.add(com.getUniqueID());
-            }
-            if (!comIds.contains(iD)) {
+            Commit prevCommit = getCommit(resolveCommitID(iD));
+            if (prevCommit == null) {
                 System.out.println("No commit with that id exists.");
             } else {
-                Commit prevCommit = _everyCommit.get(iD);
                 if (!(prevCommit.containsFile(filename))) {
                     System.out.println("File does not exist in that commit.");
                 }
                 if (prevCommit.containsFile(filename)) {
-                    String prevState = prevCommit.getFileContents(filename);
-                    Utils.writeContents(Utils.join(CWD, filename), prevState);
+                    writeFile(filename, prevCommit.getFile(filename));
                 }
             }
         }
@@ -311,44 +809,67 @@ public class Repo {
      * and puts them in the working directory,overwriting the versions
      * of the files that are already there if they exist.
      * @param branchName n.*/
-    @SuppressWarnings("unchecked")
     public static void checkoutBranch(String branchName) {
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        if (!_branches.containsKey(branchName)) {
+        open();
+        if (!STATE.branches().containsKey(branchName)) {
             System.out.println("No such branch exists.");
             return;
-        } else if (branchName.equals(_head)) {
+        } else if (branchName.equals(STATE.head())) {
             System.out.println("No need to checkout the current branch.");
             return;
         }
         Commit headCommit = returnHeadCommit(branchName);
-        Commit currentHead = returnHeadCommit(_head);
-        for (String name : Utils.plainFilenamesIn(CWD)) {
+        Commit currentHead = returnHeadCommit(STATE.head());
+        TreeMap<String, BasicFileAttributes> working = WORKTREE.scan();
+        for (String name : working.keySet()) {
             if (!currentHead.containsFile(name)) {
                 compareFile(name, headCommit);
             }
         }
-        List<String> sorted = new ArrayList<>(currentHead.getallFileNames());
-        for (String filename : sorted) {
-            if (headCommit.containsFile(filename)) {
-                checkout(headCommit.getUniqueID(), filename);
+        switchTree(currentHead, headCommit, working);
+        record("head", branchName);
+    }
+
+    /** Helper method that makes the working files of commit FROM those
+     * of commit TO, given the attributes WORKING of the working files.
+     * The trees of the commits are diffed, skipping the directories
+     * they share.  Files of FROM that TO does not track are deleted.
+     * Files whose version differs between the two commits are written,
+     * as are files the commits agree on whose working copy the index
+     * cannot prove matches; every other file is left alone.  The writes
+     * run in parallel.
+     * @param from f.
+     * @param to t.
+     * @param working w.*/
+    private static void switchTree(Commit from, Commit to,
+            TreeMap<String, BasicFileAttributes> working) {
+        TreeMap<String, String> changed = new TreeMap<>();
+        Tree.diff(from.getTree(), to.getTree(), (name, oldId, newId) -> {
+            if (newId == null) {
+                deleteFile(name);
             } else {
-                File dirCheckout = Utils.join(CWD, filename);
-                dirCheckout.delete();
+                changed.put(name, newId);
             }
+        });
+        for (Map.Entry<String, String> file : to.getFiles().entrySet()) {
+            String name = file.getKey();
+            BasicFileAttributes attrs = working.get(name);
+            if (attrs == null || !file.getValue().equals(
+                    DIRCACHE.cachedId(name, attrs))) {
+                changed.put(name, file.getValue());
+            }
+        }
+        List<String> names = new ArrayList<>(changed.keySet());
+        for (String name : names) {
+            Utils.join(CWD, name).getParentFile().mkdirs();
         }
-        Collection<Blob> headBlobs = headCommit.getFiles().values();
-        for (Blob blob : headBlobs) {
-            String contents = blob.getContent();
-            Utils.writeContents(Utils.join(CWD,
-                    blob.getBlobName()), contents);
+        inParallel(names, name -> {
+            OBJECTS.copyBlob(changed.get(name), Utils.join(CWD, name));
+            return name;
+        });
+        for (String name : names) {
+            DIRCACHE.update(name, changed.get(name));
         }
-        _head = branchName;
-        writeAllobjects();
     }
 
     /** Helper method that compares version of
@@ -357,11 +878,10 @@ public class Repo {
      * @param cwdFile cw.
      * @param com c.*/
     public static void compareFile(String cwdFile, Commit com) {
-        String currentContents =
-                Utils.readContentsAsString(Utils.join(CWD, cwdFile));
         if (com.containsFile(cwdFile)) {
-            String commitContents = com.getFileContents(cwdFile);
-            if (!commitContents.equals(currentContents)) {
+            String currentBlob = DIRCACHE.idOf(cwdFile);
+            String commitBlob = com.getFile(cwdFile);
+            if (!commitBlob.equals(currentBlob)) {
                 System.out.println("There is an untracked file in the way;"
                         +  " delete it, or add and commit it first.");
                 return;
@@ -372,82 +892,159 @@ public class Repo {
     /** Starting at the current head commit, display information about each
      * commit backwards along the commit tree until the initial commit,
      * following the first parent commit links, ignoring any second parents
-     * found in merge commits.*/
-    @SuppressWarnings("unchecked")
-    public static void log() {
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _history = Utils.readObject(HISTFILE, LinkedList.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        LinkedList<String> head = getActiveBranch().getHist();
-        printLog(head);
+     * found in merge commits.  The commits are found through the commit
+     * graph one at a time, so only those shown are read.  OPTIONS are
+     * those of LogOptions; with --since, the walk stops at the first
+     * commit older than it.
+     * @param options o.*/
+    public static void log(String... options) {
+        LogOptions opts = LogOptions.parse(options);
+        if (opts == null) {
+            System.out.println("Incorrect operands.");
+            return;
+        }
+        open();
+        printLog(firstParents(getActiveBranch().getID(), opts.getSince(),
+                opts.getUntil()), opts);
     }
 
-    /** Displays information about all commits ever made.*/
-    @SuppressWarnings("unchecked")
-   public static void globaLog() {
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _history = Utils.readObject(HISTFILE, LinkedList.class);
-        printLog(_history);
-    }
-
-    /** Helper method for log and global log.
-     * @param container c. */
-    public static void printLog(LinkedList<String> container) {
-        for (int i = container.size() - 1; i >= 0; i--) {
-            String comID = container.get(i);
-            Commit com = _everyCommit.get(comID);
-            System.out.println("===");
-            System.out.println("commit " + com.getUniqueID());
-            String timestamp = com.getTimestamp();
-            Timestamp time = Timestamp.valueOf(timestamp);
-            Formatter form = new Formatter();
-            form.format("%tc", time);
-            String date = form.toString();
-            date = date.replace("PDT ",
-                    "").replace("PST ", "");
-            System.out.println("Date: " + date + " -0800");
-            System.out.println(com.getMessage() + "\n");
+    /** Displays information about all commits ever made, newest first.
+     * OPTIONS are those of LogOptions.  The commits of a window of time
+     * are found by binary search in the time index.
+     * @param options o.*/
+    public static void globaLog(String... options) {
+        LogOptions opts = LogOptions.parse(options);
+        if (opts == null) {
+            System.out.println("Incorrect operands.");
+            return;
+        }
+        open();
+        if (!opts.isWindowed()) {
+            printLog(STATE.history().descendingIterator(), opts);
+            return;
         }
+        if (GRAPH.size() < STATE.history().size()) {
+            for (String id : STATE.history()) {
+                graphRow(id);
+            }
+        }
+        Iterator<Integer> rows = TIMES.rows(opts.getSince(), opts.getUntil());
+        printLog(new Iterator<String>() {
+            @Override
+            public boolean hasNext() {
+                return rows.hasNext();
+            }
+
+            @Override
+            public String next() {
+                return GRAPH.idAt(rows.next());
+            }
+        }, opts);
+    }
+
+    /** Helper method that iterates lazily over commit ID and its first
+     * parents, newest first, through the commit graph, passing over those
+     * made after UNTIL and stopping at the first made before SINCE, both
+     * in milliseconds since the epoch.
+     * @param id commit id.
+     * @param since s.
+     * @param until u.
+     * @return ids.*/
+    private static Iterator<String> firstParents(String id, long since,
+                                                 long until) {
+        return new Iterator<String>() {
+            /** Row of the next commit, or -1 after the last. */
+            private int _row = start(graphRow(id));
+
+            /** Returns ROW or its first ancestor no later than UNTIL,
+             * or -1 if that is before SINCE or there is none. */
+            private int start(int row) {
+                while (row >= 0 && GRAPH.time(row) > until) {
+                    row = GRAPH.parent(row);
+                }
+                return row >= 0 && GRAPH.time(row) >= since ? row : -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return _row >= 0;
+            }
+
+            @Override
+            public String next() {
+                if (_row < 0) {
+                    throw new NoSuchElementException();
+                }
+                String result = GRAPH.idAt(_row);
+                _row = start(GRAPH.parent(_row));
+                return result;
+            }
+        };
+    }
+
+    /** Helper method for log and global log that prints the commits
+     * IDS, reading each one only as it is printed, into one buffered
+     * writer, as OPTS ask.  No more of IDS is consumed than is printed
+     * or skipped, and skipped commits are not read.
+     * @param ids i.
+     * @param opts o.*/
+    public static void printLog(Iterator<String> ids, LogOptions opts) {
+        for (long skip = opts.getSkip(); skip > 0 && ids.hasNext();
+             skip -= 1) {
+            ids.next();
+        }
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        for (long n = opts.getLimit(); n > 0 && ids.hasNext(); n -= 1) {
+            Commit com = getCommit(ids.next());
+            if (opts.isOneline()) {
+                out.print(com.getUniqueID().substring(0, 7) + " ");
+                out.print(com.getMessage() + "\n");
+                continue;
+            }
+            out.print("===\ncommit " + com.getUniqueID() + "\n");
+            if (com.getMergeParent() != null) {
+                out.print("Merge: " + com.getParent().substring(0, 7) + " "
+                        + com.getMergeParent().substring(0, 7) + "\n");
+            }
+            out.print("Date: " + LOG_DATE.format(Instant.ofEpochMilli(
+                    com.getTime()).atOffset(ZoneOffset.ofTotalSeconds(
+                    com.getOffset()))) + "\n");
+            out.print(com.getMessage() + "\n\n");
+        }
+        out.flush();
     }
 
     /** Unstages the file if it is currently staged for addition.
      * @param removeFile f.*/
-    @SuppressWarnings("unchecked")
     public static void rm(String removeFile) {
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _history = Utils.readObject(HISTFILE, LinkedList.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        HashMap<String, Blob> comFiles = returnHeadCommit(_head).getFiles();
-        if (!stagedAdd.containsKey(removeFile)
+        open();
+        Map<String, String> comFiles
+                = returnHeadCommit(STATE.head()).getFiles();
+        if (!STATE.additions().containsKey(removeFile)
                 && !comFiles.containsKey(removeFile)) {
             System.out.println("No reason to remove the file.");
         }
-        if (stagedAdd.containsKey(removeFile)) {
-            stagedAdd.remove(removeFile);
+        if (STATE.additions().containsKey(removeFile)) {
+            record("unstage", removeFile);
         }
         File removeDir = Utils.join(CWD, removeFile);
         if (comFiles.containsKey(removeFile)) {
-            stagedRemove.put(removeFile,
-                    comFiles.get(removeFile));
+            record("remove", removeFile, comFiles.get(removeFile));
             if (removeDir.exists()) {
-                removeDir.delete();
+                deleteFile(removeFile);
             }
         }
-        writeAllobjects();
     }
 
     /** Prints out the ids of all commits that have
      * the given commit message, one per line.
      * @param message m.*/
-    @SuppressWarnings("unchecked")
     public static void find(String message) {
         ArrayList<String> comIds = new ArrayList<>();
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        for (Commit commit : _everyCommit.values()) {
+        open();
+        for (String id : STATE.history()) {
+            Commit commit = getCommit(id);
             if (commit.getMessage().equals(message)) {
                 comIds.add(commit.getUniqueID());
             }
@@ -464,45 +1061,81 @@ public class Repo {
 
     /** Displays what branches currently exist,
      * and marks the current branch with a *. */
-    @SuppressWarnings("unchecked")
     public static void status() {
         if (!GITLET_DIRECTORY.exists()) {
             System.out.println("Not in an initialized Gitlet directory.");
             return;
         }
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
+        open();
         System.out.println("=== Branches ===");
-        List<String> branchStatus = statusHelper(_branches);
+        List<String> branchStatus = statusHelper(STATE.branches());
         for (String br : branchStatus) {
-            if (br.equals(_head)) {
+            if (br.equals(STATE.head())) {
                 System.out.println("*" + br);
             } else {
                 System.out.println(br);
             }
         }
         System.out.println("\n" + "=== Staged Files ===");
-        List<String> addStatus = statusHelper(stagedAdd);
+        List<String> addStatus = statusHelper(STATE.additions());
         for (String add : addStatus) {
             System.out.println(add);
         }
         System.out.println("\n" + "=== Removed Files ===");
-        List<String> remStatus = statusHelper(stagedRemove);
+        List<String> remStatus = statusHelper(STATE.removals());
         for (String rem : remStatus) {
             System.out.println(rem);
         }
+        List<String> untracked = new ArrayList<>();
+        TreeMap<String, String> modified = new TreeMap<>();
+        scanWorkingFiles(modified, untracked);
         System.out.println("\n"
                 + "=== Modifications Not Staged For Commit ===");
+        for (Map.Entry<String, String> mod : modified.entrySet()) {
+            System.out.println(mod.getKey() + " (" + mod.getValue() + ")");
+        }
         System.out.println("\n" + "=== Untracked Files ===");
+        for (String name : untracked) {
+            System.out.println(name);
+        }
+    }
+
+    /** Helper method for status that compares the working files with
+     * the head commit and the staging area.  Each file that is tracked
+     * or staged but differs from its tracked or staged version is put
+     * in MODIFIED, mapped to "modified" or "deleted", and each file that
+     * is neither tracked nor staged for addition is added to UNTRACKED,
+     * in order.  Only files that are tracked or staged are hashed, and
+     * only when their stat data has changed.
+     * @param modified m.
+     * @param untracked u.*/
+    private static void scanWorkingFiles(Map<String, String> modified,
+                                         List<String> untracked) {
+        Commit head = returnHeadCommit(STATE.head());
+        HashMap<String, String> expected = new HashMap<>(head.getFiles());
+        expected.keySet().removeAll(STATE.removals().keySet());
+        expected.putAll(STATE.additions());
+        TreeMap<String, BasicFileAttributes> present = WORKTREE.scan();
+        for (Map.Entry<String, BasicFileAttributes> file
+                : present.entrySet()) {
+            String name = file.getKey();
+            if (!expected.containsKey(name)) {
+                untracked.add(name);
+            } else if (!expected.get(name).equals(
+                    DIRCACHE.idOf(name, file.getValue()))) {
+                modified.put(name, "modified");
+            }
+        }
+        for (String name : expected.keySet()) {
+            if (!present.containsKey(name)) {
+                modified.put(name, "deleted");
+            }
+        }
     }
 
     /** Status helper.
      * @param list l.
      * @return list.*/
-    @SuppressWarnings("unchecked")
     public static List<String> statusHelper(Map<String, ?> list) {
         Set<String> keys = list.keySet();
         List<String> sorted = new ArrayList<>(keys);
@@ -513,77 +1146,92 @@ public class Repo {
     /** Creates a new branch with the given name,
      * and points it at the current head node.
      * @param name n. */
-    @SuppressWarnings("unchecked")
     public static void branch(String name) {
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        if (_branches.containsKey(name)) {
+        open();
+        if (STATE.branches().containsKey(name)) {
             System.out.println("A branch with that name already exists.,");
         }
-        Branch currHead = getActiveBranch();
-        Branch newBranch = new Branch(currHead.getID(),
-                (LinkedList<String>)
-                currHead.getHist().clone());
-        _branches.put(name, newBranch);
-        writeAllobjects();
+        record("branch", name, STATE.head());
+    }
+
+    /** Lists the branches whose history includes the commit with id
+     * ID, marking the current branch with a *.  Each branch is tested
+     * with one bit of its head's reachability bitmap.
+     * @param id commit id. */
+    public static void branchesContaining(String id) {
+        open();
+        id = resolveCommitID(id);
+        if (getCommit(id) == null) {
+            System.out.println("No commit with that id exists.");
+            return;
+        }
+        int row = graphRow(id);
+        for (String name : statusHelper(STATE.branches())) {
+            String head = STATE.branches().get(name).getID();
+            if (REACH.reach(graphRow(head)).get(row)) {
+                System.out.println((name.equals(STATE.head()) ? "*" : "")
+                        + name);
+            }
+        }
+    }
+
+    /** Prints how many commits branch NAME has that branch OTHER, or
+     * the current branch if OTHER is null, does not, and how many OTHER
+     * has that NAME does not.  Each count is of the difference of the
+     * two heads' reachability bitmaps.
+     * @param name n.
+     * @param other o. */
+    public static void compare(String name, String other) {
+        open();
+        if (other == null) {
+            other = STATE.head();
+        }
+        if (!STATE.branches().containsKey(name)
+                || !STATE.branches().containsKey(other)) {
+            System.out.println("A branch with that name does not exist.");
+            return;
+        }
+        Bitmap mine = REACH.reach(graphRow(
+                STATE.branches().get(name).getID()));
+        Bitmap theirs = REACH.reach(graphRow(
+                STATE.branches().get(other).getID()));
+        System.out.println(name + " is " + mine.andNot(theirs).cardinality()
+                + " commits ahead of and " + theirs.andNot(mine).cardinality()
+                + " commits behind " + other + ".");
     }
 
     /**  Deletes the branch with the given name.
      * @param name n. */
-    @SuppressWarnings("unchecked")
     public static void rmBranch(String name) {
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        if (!_branches.containsKey(name)) {
+        open();
+        if (!STATE.branches().containsKey(name)) {
             System.out.println("branch with that name does not exist.");
             return;
-        } else if (name.equals(_head)) {
+        } else if (name.equals(STATE.head())) {
             System.out.println("Cannot remove the current branch.");
             return;
         } else {
-            _branches.remove(name);
+            record("rm-branch", name);
         }
-        writeAllobjects();
     }
 
     /** Checks out all the files tracked by the given commit.
      * @param id n. */
-    @SuppressWarnings("unchecked")
     public static void reset(String id) {
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-        if (!_everyCommit.containsKey(id)) {
+        open();
+        id = resolveCommitID(id);
+        if (getCommit(id) == null) {
             System.out.println("No commit with that id exists.");
             return;
         } else {
-            Commit headCommit = _everyCommit.get(id);
-            for (String name : Utils.plainFilenamesIn(CWD)) {
+            Commit headCommit = getCommit(id);
+            TreeMap<String, BasicFileAttributes> working = WORKTREE.scan();
+            for (String name : working.keySet()) {
                 compareFile(name, headCommit);
             }
-            List<String> sorted = new ArrayList<>(headCommit.getallFileNames());
-            for (String filename : sorted) {
-                checkout(id, filename);
-            }
-        }
-        Branch currHead = getActiveBranch();
-        if (currHead.containsCommit(id)) {
-            int x = currHead.getHist().size() - 1;
-            currHead.getHist().remove(x);
-        } else {
-            currHead.addCommit(id);
-        }
-        for (Branch br : _branches.values()) {
-            if (br.getID().equals(id)) {
-                _branches.replace(_head, br);
-            }
+            switchTree(returnHeadCommit(STATE.head()), headCommit, working);
         }
-        stagedAdd.clear();
-        stagedRemove.clear();
-        writeAllobjects();
+        record("reset", STATE.head(), id);
     }
 
     /** Helper method that compares version
@@ -595,12 +1243,11 @@ public class Repo {
     public static int compareFileMerge(String cwdFile,
                                        Commit active, Commit given) {
         int numFiles = 0;
-        String currentContents =
-                Utils.readContentsAsString(Utils.join(CWD, cwdFile));
         if (!active.containsFile(cwdFile)) {
             if (given.containsFile(cwdFile)) {
-                String commitContents = given.getFileContents(cwdFile);
-                if (!commitContents.equals(currentContents)) {
+                String commitBlob = given.getFile(cwdFile);
+                String currentBlob = DIRCACHE.idOf(cwdFile);
+                if (!commitBlob.equals(currentBlob)) {
                     numFiles++;
                 }
             }
@@ -608,25 +1255,25 @@ public class Repo {
         return numFiles;
     }
 
-    /** Read merge objs.*/
-    @SuppressWarnings("unchecked")
-    public static void read() {
-        stagedAdd = Utils.readObject(STAGEDADDFILE, HashMap.class);
-        stagedRemove = Utils.readObject(STAGEDREMOVEFILE, HashMap.class);
-        _everyCommit = Utils.readObject(COMMITS, HashMap.class);
-        _branches = Utils.readObject(BRANCHFILE, HashMap.class);
-        _head = Utils.readObject(HEADPOINTER, String.class);
-    }
-
-    /** Merges files from the given branch into the current branch.
+    /** Merges files from the given branch, or from the commit whose id
+     * BRANCH abbreviates, into the current branch.  A commit given by id
+     * that the current branch is an ancestor of is fast-forwarded to by
+     * moving the current branch to it, as reset does.
      * @param branch b. */
-    @SuppressWarnings("unchecked")
     public static void merge(String branch) {
-        read();
-        Commit masterCommit = _everyCommit.get(getActiveBranch().getID());
-        Commit givenCommit = _everyCommit.get(_branches.get(branch).getID());
+        open();
+        Branch given = STATE.branches().get(branch);
+        String givenID = given == null ? resolveCommitID(branch)
+            : given.getID();
+        Commit givenCommit = getCommit(givenID);
+        if (givenCommit == null) {
+            System.out.println("A branch with that name does not exist.");
+            return;
+        }
+        Commit masterCommit = getCommit(getActiveBranch().getID());
+        TreeMap<String, BasicFileAttributes> working = WORKTREE.scan();
         int cwdF = 0;
-        for (String name : Utils.plainFilenamesIn(CWD)) {
+        for (String name : working.keySet()) {
             cwdF += compareFileMerge(name, masterCommit, givenCommit);
         }
         if (cwdF > 0) {
@@ -634,38 +1281,37 @@ public class Repo {
                     + " delete it, or add and commit it first.");
             return;
         }
-        String splitPoint = findSplitPoint(getActiveBranch().getHist(),
-                _branches.get(branch).getHist());
-        Commit splitCommit = _everyCommit.get(splitPoint);
-        if (splitPoint.equals(getActiveBranch().getID())) {
-            checkoutBranch(branch);
+        String splitPoint = findSplitPoint(getActiveBranch().getID(),
+                givenID);
+        Commit splitCommit = getCommit(splitPoint);
+        if (splitPoint.equals(givenID)) {
+            System.out.println("Given branch is an ancestor"
+                    + " of the current branch.");
+            return;
+        } else if (splitPoint.equals(getActiveBranch().getID())) {
+            if (given != null) {
+                checkoutBranch(branch);
+            } else {
+                switchTree(masterCommit, givenCommit, working);
+                record("reset", STATE.head(), givenID);
+            }
             System.out.println("Current branch fast-forwarded.");
+            return;
         }
-        for (String name : givenCommit.getallFileNames()) {
-            if (!splitCommit.containsFile(name)
-                    && !masterCommit.containsFile(name)) {
-                checkout(_branches.get(branch).getID(), name);
-                add(name);
-            } else if ((modified(name, splitCommit, givenCommit)
-                    && !modified(name, splitCommit, masterCommit))) {
-                checkout(_branches.get(branch).getID(), name);
-                add(name);
-            } else if (masterCommit.containsFile(name)) {
-                if (modified(name, splitCommit, masterCommit)) {
+        Tree.diff(splitCommit.getTree(), givenCommit.getTree(),
+            (name, splitBlob, givenBlob) -> {
+                if (!modified(name, splitCommit, masterCommit)) {
+                    if (givenBlob == null) {
+                        rm(name);
+                    } else {
+                        checkout(givenID, name);
+                        add(name);
+                    }
+                } else if (masterCommit.containsFile(name)) {
                     conflict(name, masterCommit, givenCommit);
                 }
-            }
-        }
-        for (String name : splitCommit.getallFileNames()) {
-            if (!givenCommit.getallFileNames().contains(name)
-                    && !modified(name, splitCommit, masterCommit)) {
-                rm(name);
-            } else if (!givenCommit.getallFileNames().contains(name)
-                     && masterCommit.containsFile(name)) {
-                conflict(name, masterCommit, givenCommit);
-            }
-        }
-        commit("Merged " + branch + " into " + _head + ".");
+            });
+        commit("Merged " + branch + " into " + STATE.head() + ".", givenID);
     }
 
     /** Conflict helper.
@@ -674,12 +1320,12 @@ public class Repo {
      * @param other a.*/
     public static void conflict(String name,
                                 Commit active, Commit other) {
-        String activeContent = active.getFileContents(name);
+        String activeContent = getFileContents(active, name);
         String otherContent = "";
         if (!other.containsFile(name)) {
             otherContent = "";
         } else {
-            otherContent = other.getFileContents(name);
+            otherContent = getFileContents(other, name);
         }
         String updated = "<<<<<<< HEAD\n" + activeContent
                 + "=======\n"
@@ -696,33 +1342,22 @@ public class Repo {
      * @return b b.*/
     public static boolean modified(String name,
                                    Commit active, Commit other) {
-        Blob blob1 = active.getFile(name);
-        Blob blob2 = other.getFile(name);
-        return !blob1.equals(blob2);
+        String blob1 = active.getFile(name);
+        String blob2 = other.getFile(name);
+        return !Objects.equals(blob1, blob2);
     }
 
-    /** helper.
-     * @param active s.
+    /** Helper method that finds the split point of the commits ACTIVE
+     * and GIVEN: their latest common ancestor, found by walking the
+     * commit graph.  When several common ancestors are equally good, as
+     * after criss-cross merges, the newest is used.
+     * @param active a.
      * @param given g.
-     * @return string s.*/
-    public static String findSplitPoint(LinkedList<String> active,
-                                        LinkedList<String> given) {
-        String splitPoint = "";
-        int activeEndInd = active.size() - 1;
-        int givenEndInd = given.size() - 1;
-        boolean latest = false;
-        for (int g = givenEndInd; g >= 0; g--) {
-            for (int a = activeEndInd; a >= 0; a--) {
-                String currNode = given.get(g);
-                if (currNode.equals(active.get(a))) {
-                    if (!latest) {
-                        splitPoint = given.get(g);
-                        latest = true;
-                    }
-                }
-            }
-        }
-        return splitPoint;
+     * @return split point id.*/
+    public static String findSplitPoint(String active, String given) {
+        List<Integer> bases =
+            GRAPH.mergeBases(graphRow(active), graphRow(given));
+        return GRAPH.idAt(bases.get(0));
     }
 
 }
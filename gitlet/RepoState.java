@@ -0,0 +1,291 @@
+package gitlet;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/** The mutable state of a repository: the staged additions and
+ *  removals, the commit history, the branches and the head pointer.
+ *  Each component is kept in its own checkpoint and is loaded only
+ *  when a command first asks for it, by reading that checkpoint and
+ *  replaying the journal records newer than it that change it.  A
+ *  component changed since its checkpoint is dirty, and compacting
+ *  the journal rewrites only the dirty checkpoints.
+ *  @author Harshaan Sall */
+public class RepoState {
+
+    /** Index of the staged additions. */
+    static final int ADDITIONS = 0;
+
+    /** Index of the staged removals. */
+    static final int REMOVALS = 1;
+
+    /** Index of the commit history. */
+    static final int HISTORY = 2;
+
+    /** Index of the branches. */
+    static final int BRANCHES = 3;
+
+    /** Index of the head pointer. */
+    static final int HEAD = 4;
+
+    /** Kinds of journal record that change each component. */
+    private static final List<List<String>> CHANGED_BY = List.of(
+        List.of("stage", "unstage", "commit", "reset"),
+        List.of("remove", "unremove", "commit", "reset"),
+        List.of("commit", "prune"),
+        List.of("commit", "branch", "rm-branch", "reset"),
+        List.of("head"));
+
+    /** Number of journal records above which the journal is compacted
+     * into fresh checkpoints. */
+    private static final int COMPACT_LIMIT = 512;
+
+    /** Checkpoint files, indexed by component. */
+    private final File[] _checkpoints;
+
+    /** Journal of changes made since the checkpoints. */
+    private final Journal _journal;
+
+    /** Records of the journal, read when the state is first used. */
+    private List<Journal.Record> _records;
+
+    /** Loaded components, null until first used. */
+    private final Object[] _values;
+
+    /** Journal record each loaded component's checkpoint reflects. */
+    private final long[] _seqs;
+
+    /** Whether each loaded component differs from its checkpoint. */
+    private final boolean[] _dirty;
+
+    /** Constructor for the state kept in the checkpoint files
+     *  CHECKPOINTS, indexed by component, and the journal in
+     *  JOURNALFILE. */
+    public RepoState(File journalFile, File... checkpoints) {
+        this._checkpoints = checkpoints;
+        this._journal = new Journal(journalFile);
+        this._values = new Object[checkpoints.length];
+        this._seqs = new long[checkpoints.length];
+        this._dirty = new boolean[checkpoints.length];
+    }
+
+    /** Starts the state of a new repository, with nothing staged, whose
+     *  branch HEAD is the only one in BRANCHES and whose history is
+     *  HISTORY.  Every component is dirty until checkpointed.
+     * @param head h.
+     * @param branches b.
+     * @param history h. */
+    public void create(String head, HashMap<String, Branch> branches,
+                       LinkedList<String> history) {
+        _records = new ArrayList<>();
+        _values[ADDITIONS] = new HashMap<String, String>();
+        _values[REMOVALS] = new HashMap<String, String>();
+        _values[HISTORY] = history;
+        _values[BRANCHES] = branches;
+        _values[HEAD] = head;
+        Arrays.fill(_dirty, true);
+    }
+
+    /** Getter for the files staged for addition, mapped to blob ids.
+     * @return additions. */
+    @SuppressWarnings("unchecked")
+    public HashMap<String, String> additions() {
+        return (HashMap<String, String>) get(ADDITIONS);
+    }
+
+    /** Getter for the files staged for removal, mapped to blob ids.
+     * @return removals. */
+    @SuppressWarnings("unchecked")
+    public HashMap<String, String> removals() {
+        return (HashMap<String, String>) get(REMOVALS);
+    }
+
+    /** Getter for the ids of every commit, oldest first.
+     * @return history. */
+    @SuppressWarnings("unchecked")
+    public LinkedList<String> history() {
+        return (LinkedList<String>) get(HISTORY);
+    }
+
+    /** Getter for the branches, by name.
+     * @return branches. */
+    @SuppressWarnings("unchecked")
+    public HashMap<String, Branch> branches() {
+        return (HashMap<String, Branch>) get(BRANCHES);
+    }
+
+    /** Getter for the name of the current branch.
+     * @return head. */
+    public String head() {
+        return (String) get(HEAD);
+    }
+
+    /** Records a change of kind TYPE with arguments ARGS in the journal
+     *  and applies it to each loaded component it changes.  Components
+     *  not yet loaded pick it up when they are.
+     * @param type t.
+     * @param args a. */
+    public void record(String type, String... args) {
+        boolean known = false;
+        for (List<String> kinds : CHANGED_BY) {
+            known |= kinds.contains(type);
+        }
+        if (!known) {
+            throw Utils.error("Unknown journal record %s.", type);
+        }
+        records();
+        Journal.Record rec = _journal.append(type, args);
+        _records.add(rec);
+        for (int c = 0; c < _values.length; c += 1) {
+            if (_values[c] != null) {
+                apply(rec, c);
+            }
+        }
+    }
+
+    /** Forces the journal to disk once the command is done, compacting
+     *  it into fresh checkpoints when it has grown past COMPACT_LIMIT
+     *  records.  Does nothing if the state was never used. */
+    public void flush() {
+        if (_records == null) {
+            return;
+        }
+        _journal.sync();
+        if (_journal.size() > COMPACT_LIMIT) {
+            checkpoint();
+        }
+    }
+
+    /** Atomically rewrites the checkpoint of every component changed
+     *  since its last checkpoint, as of the last journal record, then
+     *  empties the journal.  A crash part way through leaves the
+     *  journal intact, and replaying it skips the records each new
+     *  checkpoint already reflects. */
+    public void checkpoint() {
+        for (Journal.Record rec : records()) {
+            for (int c = 0; c < _values.length; c += 1) {
+                if (CHANGED_BY.get(c).contains(rec.getType())) {
+                    get(c);
+                }
+            }
+        }
+        long seq = _journal.getLastSeq();
+        for (int c = 0; c < _values.length; c += 1) {
+            if (_dirty[c]) {
+                new Checkpoint(seq, encode(c)).write(_checkpoints[c]);
+                _seqs[c] = seq;
+                _dirty[c] = false;
+            }
+        }
+        _journal.create(seq);
+        _records.clear();
+    }
+
+    /** Returns component C, loading it if needed. */
+    private Object get(int c) {
+        if (_values[c] == null) {
+            Checkpoint point = Checkpoint.read(_checkpoints[c]);
+            _seqs[c] = point.getSeq();
+            _values[c] = decode(c, point.getData());
+            for (Journal.Record rec : records()) {
+                apply(rec, c);
+            }
+        }
+        return _values[c];
+    }
+
+    /** Returns the records of the journal, reading it if needed. */
+    private List<Journal.Record> records() {
+        if (_records == null) {
+            _records = _journal.read();
+        }
+        return _records;
+    }
+
+    /** Applies REC to the loaded component C if it changes C and
+     *  postdates C's checkpoint. */
+    @SuppressWarnings("unchecked")
+    private void apply(Journal.Record rec, int c) {
+        String type = rec.getType();
+        if (rec.getSeq() <= _seqs[c] || !CHANGED_BY.get(c).contains(type)) {
+            return;
+        }
+        _dirty[c] = true;
+        switch (c) {
+        case ADDITIONS: case REMOVALS:
+            HashMap<String, String> staged =
+                (HashMap<String, String>) _values[c];
+            if (type.equals("stage") || type.equals("remove")) {
+                staged.put(rec.getArg(0), rec.getArg(1));
+            } else if (type.equals("unstage") || type.equals("unremove")) {
+                staged.remove(rec.getArg(0));
+            } else {
+                staged.clear();
+            }
+            break;
+        case HISTORY:
+            if (type.equals("prune")) {
+                history().remove(rec.getArg(0));
+            } else {
+                history().add(rec.getArg(1));
+            }
+            break;
+        case BRANCHES:
+            applyToBranches(rec);
+            break;
+        default:
+            _values[HEAD] = rec.getArg(0);
+        }
+    }
+
+    /** Applies REC, which changes the branches, to them: each branch is
+     *  only a pointer, so every change is constant time. */
+    private void applyToBranches(Journal.Record rec) {
+        HashMap<String, Branch> branches = branches();
+        switch (rec.getType()) {
+        case "commit":
+        case "reset":
+            branches.get(rec.getArg(0)).updatePointer(rec.getArg(1));
+            break;
+        case "branch":
+            branches.put(rec.getArg(0),
+                    new Branch(branches.get(rec.getArg(1)).getID()));
+            break;
+        default:
+            branches.remove(rec.getArg(0));
+        }
+    }
+
+    /** Returns the encoding of the loaded component C. */
+    @SuppressWarnings("unchecked")
+    private byte[] encode(int c) {
+        switch (c) {
+        case ADDITIONS: case REMOVALS:
+            return Codec.encodeFiles((HashMap<String, String>) _values[c]);
+        case HISTORY:
+            return Codec.encodeIds(history());
+        case BRANCHES:
+            return Codec.encodeBranches(branches());
+        default:
+            return Codec.encodeString(head());
+        }
+    }
+
+    /** Returns component C decoded from DATA. */
+    private static Object decode(int c, byte[] data) {
+        switch (c) {
+        case ADDITIONS: case REMOVALS:
+            return Codec.decodeFiles(data);
+        case HISTORY:
+            return Codec.decodeIds(data);
+        case BRANCHES:
+            return Codec.decodeBranches(data);
+        default:
+            return Codec.decodeString(data);
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package gitlet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/** A sorted index of the commit times in a commit graph, for finding
+ *  the commits made within a window of time by binary search.  After a
+ *  short header come 12-byte entries, each a commit time and the row
+ *  of that commit, ordered by time and then by row.  The index covers
+ *  as many of the graph's first rows as it has entries; rows added to
+ *  the graph since are merged in when it is next used.  As commits are
+ *  made in time order, that almost always only appends to the file.
+ *  An index covering more rows than the graph has, as after the graph
+ *  is cleared, is rebuilt.
+ *  @author Harshaan Sall */
+public class TimeIndex {
+
+    /** Magic number at the start of a time index. */
+    private static final int MAGIC = 0x47544958;
+
+    /** Format version of time indices. */
+    private static final int VERSION = 1;
+
+    /** Length of the header. */
+    private static final int HEADER_LENGTH = 8;
+
+    /** Length of an entry. */
+    private static final int ENTRY_LENGTH = 12;
+
+    /** File holding the index. */
+    private final File _file;
+
+    /** Graph whose rows are indexed. */
+    private final CommitGraph _graph;
+
+    /** The file, mapped when first used. */
+    private ByteBuffer _map;
+
+    /** Number of entries in the file. */
+    private int _count;
+
+    /** Constructor for the index kept in FILE of the rows of GRAPH. */
+    public TimeIndex(File file, CommitGraph graph) {
+        this._file = file;
+        this._graph = graph;
+    }
+
+    /** Returns the rows of the commits made from SINCE to UNTIL, both
+     *  inclusive and in milliseconds since the epoch, latest first.
+     *  The window is found with two binary searches, and each row is
+     *  read only as it is asked for.
+     * @param since s.
+     * @param until u.
+     * @return rows. */
+    public Iterator<Integer> rows(long since, long until) {
+        update();
+        int low = lowerBound(since);
+        int high = until == Long.MAX_VALUE ? _count : lowerBound(until + 1);
+        return new Iterator<Integer>() {
+            /** Entry after the next one to return. */
+            private int _next = high;
+
+            @Override
+            public boolean hasNext() {
+                return _next > low;
+            }
+
+            @Override
+            public Integer next() {
+                if (_next <= low) {
+                    throw new NoSuchElementException();
+                }
+                _next -= 1;
+                return rowAt(_next);
+            }
+        };
+    }
+
+    /** Deletes the file of this index, so that it is rebuilt as it is
+     *  next used. */
+    public void clear() {
+        _file.delete();
+        _map = null;
+    }
+
+    /** Brings the index up to date with the graph, appending the
+     *  entries of the rows added to it if they are no earlier than the
+     *  last indexed, and otherwise rewriting the file with them merged
+     *  in. */
+    private void update() {
+        load();
+        int size = _graph.size();
+        if (_count > size) {
+            _count = 0;
+        }
+        if (_count == size) {
+            return;
+        }
+        List<Integer> added = new ArrayList<>();
+        for (int row = _count; row < size; row += 1) {
+            added.add(row);
+        }
+        added.sort(Comparator.comparingLong(_graph::time));
+        if (_count == 0 || _graph.time(added.get(0)) >= timeAt(_count - 1)) {
+            append(added);
+        } else {
+            rewrite(added);
+        }
+        _map = null;
+        load();
+    }
+
+    /** Appends entries for the rows ADDED, in order, to the file. */
+    private void append(List<Integer> added) {
+        try (RandomAccessFile out = new RandomAccessFile(_file, "rw")) {
+            out.setLength(HEADER_LENGTH + (long) _count * ENTRY_LENGTH);
+            out.seek(0);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            ByteBuffer entries =
+                ByteBuffer.allocate(added.size() * ENTRY_LENGTH);
+            for (int row : added) {
+                entries.putLong(_graph.time(row)).putInt(row);
+            }
+            out.seek(out.length());
+            out.write(entries.array());
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Atomically rewrites the file with the entries of the rows ADDED,
+     *  in order, merged into those already there. */
+    private void rewrite(List<Integer> added) {
+        File tmp = new File(_file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            int i = 0;
+            for (int row : added) {
+                long time = _graph.time(row);
+                for (; i < _count && timeAt(i) <= time; i += 1) {
+                    out.writeLong(timeAt(i));
+                    out.writeInt(rowAt(i));
+                }
+                out.writeLong(time);
+                out.writeInt(row);
+            }
+            for (; i < _count; i += 1) {
+                out.writeLong(timeAt(i));
+                out.writeInt(rowAt(i));
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), _file.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Returns the first entry whose time is at least TIME, or the
+     *  number of entries if there is none. */
+    private int lowerBound(long time) {
+        int low = 0;
+        int high = _count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timeAt(mid) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /** Returns the time of entry I. */
+    private long timeAt(int i) {
+        return _map.getLong(HEADER_LENGTH + i * ENTRY_LENGTH);
+    }
+
+    /** Returns the row of entry I. */
+    private int rowAt(int i) {
+        return _map.getInt(HEADER_LENGTH + i * ENTRY_LENGTH + 8);
+    }
+
+    /** Maps the file of this index, if it is not mapped, ignoring a
+     *  missing or unreadable file and any partial entry at its end. */
+    private void load() {
+        if (_map != null) {
+            return;
+        }
+        _map = ByteBuffer.allocate(HEADER_LENGTH);
+        _count = 0;
+        if (!_file.isFile()) {
+            return;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(_file, "r")) {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            if (size < HEADER_LENGTH) {
+                return;
+            }
+            ByteBuffer map =
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (map.getInt(0) != MAGIC || map.getInt(4) != VERSION) {
+                return;
+            }
+            _map = map;
+            _count = (int) ((size - HEADER_LENGTH) / ENTRY_LENGTH);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package gitlet;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/** A snapshot of one directory: the blob id of each file in it and the
+ *  tree of each directory below it, by name.  A tree's id is the hash
+ *  of its encoding, which lists its entries in name order, so two trees
+ *  with the same contents have the same id, and a commit shares every
+ *  directory it did not change with its parent.  Comparing two trees
+ *  skips any pair of subtrees with equal ids.  A tree read from the
+ *  store loads its entries, and each subtree, on first use.  Trees are
+ *  never changed once built.
+ *  @author Harshaan Sall */
+public class Tree {
+
+    /** Receives the paths found to differ between two trees. */
+    public interface Differ {
+        /** Called for the file NAME, whose blob id is ID1 in the first
+         *  tree and ID2 in the second, either of which may be null. */
+        void differs(String name, String id1, String id2);
+    }
+
+    /** Receives the files and trees found walking a tree. */
+    public interface Visitor {
+        /** Called with the object id ID of the file NAME, or of the tree
+         *  of the directory NAME, which ends in a separator unless it is
+         *  the root, "". */
+        void visit(String name, String id);
+    }
+
+    /** The empty tree. */
+    static final Tree EMPTY = new Tree(new TreeMap<>(), new TreeMap<>());
+
+    /** Id, computed on first use. */
+    private String _id;
+
+    /** Store this tree is read from, or null if it was built in memory
+     *  and is not yet stored. */
+    private ObjectStore _store;
+
+    /** Blob ids of the files, by name, or null until loaded. */
+    private TreeMap<String, String> _files;
+
+    /** Subtrees, by name, or null until loaded. */
+    private TreeMap<String, Tree> _trees;
+
+    /** Constructor for the stored tree ID of STORE, read on first use. */
+    Tree(String id, ObjectStore store) {
+        this._id = id;
+        this._store = store;
+    }
+
+    /** Constructor for a new tree of FILES, mapping names to blob ids,
+     *  and TREES, mapping names to subtrees. */
+    Tree(TreeMap<String, String> files, TreeMap<String, Tree> trees) {
+        this._files = files;
+        this._trees = trees;
+    }
+
+    /** Returns the tree of FILES, which maps paths to blob ids.
+     * @param files f.
+     * @return tree. */
+    public static Tree of(Map<String, String> files) {
+        return EMPTY.with(files, Set.of());
+    }
+
+    /** Returns this tree with the files ADDITIONS, mapping paths to blob
+     *  ids, added or replaced and the files REMOVALS removed.  Only the
+     *  directories on the paths changed are rebuilt; the new tree shares
+     *  every other subtree with this one.
+     * @param additions a.
+     * @param removals r.
+     * @return tree. */
+    public Tree with(Map<String, String> additions, Set<String> removals) {
+        if (additions.isEmpty() && removals.isEmpty()) {
+            return this;
+        }
+        TreeMap<String, String> files = new TreeMap<>(files());
+        TreeMap<String, Tree> trees = new TreeMap<>(trees());
+        TreeMap<String, TreeMap<String, String>> subAdditions =
+            new TreeMap<>();
+        TreeMap<String, Set<String>> subRemovals = new TreeMap<>();
+        for (Map.Entry<String, String> file : additions.entrySet()) {
+            String name = file.getKey();
+            int sep = name.indexOf(WorkTree.SEPARATOR);
+            if (sep < 0) {
+                files.put(name, file.getValue());
+            } else {
+                subAdditions.computeIfAbsent(name.substring(0, sep),
+                        k -> new TreeMap<>())
+                    .put(name.substring(sep + 1), file.getValue());
+            }
+        }
+        for (String name : removals) {
+            int sep = name.indexOf(WorkTree.SEPARATOR);
+            if (sep < 0) {
+                files.remove(name);
+            } else {
+                subRemovals.computeIfAbsent(name.substring(0, sep),
+                        k -> new TreeSet<>())
+                    .add(name.substring(sep + 1));
+            }
+        }
+        TreeSet<String> dirs = new TreeSet<>(subAdditions.keySet());
+        dirs.addAll(subRemovals.keySet());
+        for (String dir : dirs) {
+            Tree sub = trees.getOrDefault(dir, EMPTY).with(
+                    subAdditions.getOrDefault(dir, new TreeMap<>()),
+                    subRemovals.getOrDefault(dir, Set.of()));
+            if (sub.isEmpty()) {
+                trees.remove(dir);
+            } else {
+                trees.put(dir, sub);
+            }
+        }
+        return new Tree(files, trees);
+    }
+
+    /** Getter for id.
+     * @return id. */
+    public String getId() {
+        if (_id == null) {
+            _id = Utils.sha1("tree", encode());
+        }
+        return _id;
+    }
+
+    /** Returns the blob id of the file at PATH in this tree, or null if
+     *  there is none.
+     * @param path p.
+     * @return blob id. */
+    public String get(String path) {
+        Tree tree = this;
+        int start = 0;
+        for (int sep = path.indexOf(WorkTree.SEPARATOR); sep >= 0;
+             sep = path.indexOf(WorkTree.SEPARATOR, start)) {
+            tree = tree.trees().get(path.substring(start, sep));
+            if (tree == null) {
+                return null;
+            }
+            start = sep + 1;
+        }
+        return tree.files().get(path.substring(start));
+    }
+
+    /** Returns true if this tree holds no files.
+     * @return bool. */
+    public boolean isEmpty() {
+        return files().isEmpty() && trees().isEmpty();
+    }
+
+    /** Adds every file of this tree to RESULT, by path.
+     * @param result r. */
+    public void flatten(Map<String, String> result) {
+        walk("", null, (name, id) -> {
+            if (!name.isEmpty() && !name.endsWith(WorkTree.SEPARATOR)) {
+                result.put(name, id);
+            }
+        });
+    }
+
+    /** Calls VISITOR for this tree, whose path is PREFIX, and for each
+     *  file and tree below it, skipping any tree whose id is already in
+     *  SEEN and adding the ids of those visited to it.  SEEN may be null
+     *  to visit everything.
+     * @param prefix p.
+     * @param seen s.
+     * @param visitor v. */
+    public void walk(String prefix, Set<ObjectId> seen, Visitor visitor) {
+        if (seen != null && !seen.add(ObjectId.fromHex(getId()))) {
+            return;
+        }
+        visitor.visit(prefix, getId());
+        for (Map.Entry<String, String> file : files().entrySet()) {
+            visitor.visit(prefix + file.getKey(), file.getValue());
+        }
+        for (Map.Entry<String, Tree> sub : trees().entrySet()) {
+            sub.getValue().walk(prefix + sub.getKey() + WorkTree.SEPARATOR,
+                                seen, visitor);
+        }
+    }
+
+    /** Calls DIFFER for every file whose blob id differs between the
+     *  trees T1 and T2, either of which may be null for an empty tree,
+     *  in path order.  Subtrees with the same id are skipped unread.
+     * @param t1 first tree.
+     * @param t2 second tree.
+     * @param differ d. */
+    public static void diff(Tree t1, Tree t2, Differ differ) {
+        diff(t1 == null ? EMPTY : t1, t2 == null ? EMPTY : t2, "", differ);
+    }
+
+    /** Calls DIFFER for the files that differ between T1 and T2, whose
+     *  path is PREFIX. */
+    private static void diff(Tree t1, Tree t2, String prefix,
+                             Differ differ) {
+        if (t1.getId().equals(t2.getId())) {
+            return;
+        }
+        TreeSet<String> names = new TreeSet<>(t1.files().keySet());
+        names.addAll(t2.files().keySet());
+        for (String name : names) {
+            String id1 = t1.files().get(name);
+            String id2 = t2.files().get(name);
+            if (id1 == null || !id1.equals(id2)) {
+                differ.differs(prefix + name, id1, id2);
+            }
+        }
+        names = new TreeSet<>(t1.trees().keySet());
+        names.addAll(t2.trees().keySet());
+        for (String name : names) {
+            diff(t1.trees().getOrDefault(name, EMPTY),
+                 t2.trees().getOrDefault(name, EMPTY),
+                 prefix + name + WorkTree.SEPARATOR, differ);
+        }
+    }
+
+    /** Returns true if this tree is in a store. */
+    boolean isStored() {
+        return _store != null;
+    }
+
+    /** Records that this tree is now in STORE. */
+    void stored(ObjectStore store) {
+        this._store = store;
+    }
+
+    /** Returns the subtrees already loaded from or built in memory,
+     *  which are the only ones that may not be stored. */
+    Iterable<Tree> loadedTrees() {
+        return _trees == null ? Set.of() : _trees.values();
+    }
+
+    /** Returns the encoding of this tree. */
+    byte[] encode() {
+        TreeMap<String, String> trees = new TreeMap<>();
+        for (Map.Entry<String, Tree> sub : trees().entrySet()) {
+            trees.put(sub.getKey(), sub.getValue().getId());
+        }
+        return Codec.encodeTree(files(), trees);
+    }
+
+    /** Returns the files, loading this tree if needed. */
+    private TreeMap<String, String> files() {
+        load();
+        return _files;
+    }
+
+    /** Returns the subtrees, loading this tree if needed. */
+    private TreeMap<String, Tree> trees() {
+        load();
+        return _trees;
+    }
+
+    /** Reads the entries of this tree from its store if they are not
+     *  loaded. */
+    private synchronized void load() {
+        if (_files != null) {
+            return;
+        }
+        TreeMap<String, String> files = new TreeMap<>();
+        TreeMap<String, String> trees = new TreeMap<>();
+        Codec.decodeTree(_store.readTree(_id), files, trees);
+        _trees = new TreeMap<>();
+        for (Map.Entry<String, String> sub : trees.entrySet()) {
+            _trees.put(sub.getKey(), new Tree(sub.getValue(), _store));
+        }
+        _files = files;
+    }
+}
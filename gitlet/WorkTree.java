@@ -0,0 +1,321 @@
+package gitlet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/** A working tree: every regular file under a root directory, named by
+ *  its path relative to the root with components separated by "/".
+ *  The tree is walked with one task per directory on a ForkJoinPool,
+ *  each listing its directory with a DirectoryStream and reading the
+ *  attributes of every entry in the same pass.  Symbolic links are not
+ *  followed.  With a Monitor running, a scan instead starts from a
+ *  snapshot of the tree as of an earlier scan and reads again only the
+ *  paths the monitor logged as changed since; without one, or when
+ *  the monitor cannot say what changed, the whole tree is scanned.
+ *  @author Harshaan Sall */
+public class WorkTree {
+
+    /** Separator of the components of a path. */
+    static final String SEPARATOR = "/";
+
+    /** Root directory. */
+    private final Path _root;
+
+    /** Magic number at the start of a snapshot. */
+    private static final int MAGIC = 0x47534e50;
+
+    /** Names of top-level entries that are not part of the tree. */
+    private final Set<String> _excluded;
+
+    /** Monitor of the tree, or null. */
+    private final Monitor _monitor;
+
+    /** File holding the snapshot of the tree as of the last scan. */
+    private final File _snapshot;
+
+    /** Constructor for the tree under ROOT, leaving out the top-level
+     *  entries named EXCLUDED. */
+    public WorkTree(File root, String... excluded) {
+        this(root, null, null, excluded);
+    }
+
+    /** Constructor for the tree under ROOT, leaving out the top-level
+     *  entries named EXCLUDED, that consults MONITOR, if it is running,
+     *  keeping its snapshot in SNAPSHOT. */
+    public WorkTree(File root, Monitor monitor, File snapshot,
+                    String... excluded) {
+        this._root = root.toPath();
+        this._excluded = Set.of(excluded);
+        this._monitor = monitor;
+        this._snapshot = snapshot;
+    }
+
+    /** Returns the attributes of every file in the tree, by path.
+     * @return files. */
+    public TreeMap<String, BasicFileAttributes> scan() {
+        if (_monitor == null) {
+            return scan(_root, "");
+        }
+        Monitor.Position seen = null;
+        TreeMap<String, BasicFileAttributes> files = new TreeMap<>();
+        if (_snapshot.isFile()) {
+            seen = readSnapshot(files);
+        }
+        Monitor.Query query = _monitor.query(seen);
+        if (query == null) {
+            return scan(_root, "");
+        } else if (query.getChanged() == null) {
+            files = scan(_root, "");
+        } else if (query.getChanged().isEmpty()) {
+            return files;
+        } else {
+            for (String name : query.getChanged()) {
+                rescan(files, name);
+            }
+        }
+        writeSnapshot(query.getPosition(), files);
+        return files;
+    }
+
+    /** Deletes the file NAME of the tree, then each directory above it
+     *  that is left empty.
+     * @param name path. */
+    public void delete(String name) {
+        File file = new File(_root.toFile(), name);
+        file.delete();
+        for (File dir = file.getParentFile();
+             dir != null && !dir.toPath().equals(_root) && dir.delete();
+             dir = dir.getParentFile()) {
+            continue;
+        }
+    }
+
+    /** Returns the attributes of every file under DIR, whose path in
+     *  the tree is PREFIX. */
+    private TreeMap<String, BasicFileAttributes> scan(Path dir,
+                                                      String prefix) {
+        return ForkJoinPool.commonPool().invoke(new Scan(dir, prefix));
+    }
+
+    /** Replaces the entries of FILES for NAME and anything under it with
+     *  what is there now. */
+    private void rescan(TreeMap<String, BasicFileAttributes> files,
+                        String name) {
+        files.remove(name);
+        String prefix = name + SEPARATOR;
+        files.subMap(prefix, prefix + Character.MAX_VALUE).clear();
+        Path path = _root.resolve(name);
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path,
+                    BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attrs.isDirectory()) {
+                files.putAll(scan(path, prefix));
+            } else if (attrs.isRegularFile()) {
+                files.put(name, attrs);
+            }
+        } catch (NoSuchFileException excp) {
+            /* Removed. */
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** Reads the snapshot into FILES, returning the position of the
+     *  monitor's log it reflects, or null if it cannot be read. */
+    private Monitor.Position readSnapshot(
+            TreeMap<String, BasicFileAttributes> files) {
+        try (DataInputStream in = new DataInputStream(
+                 new BufferedInputStream(new FileInputStream(_snapshot)))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            Monitor.Position seen =
+                new Monitor.Position(in.readUTF(), in.readLong());
+            for (int n = in.readInt(); n > 0; n -= 1) {
+                String name = in.readUTF();
+                files.put(name, new Stat(in.readLong(), in.readLong(),
+                                         in.readUTF()));
+            }
+            return seen;
+        } catch (IOException excp) {
+            files.clear();
+            return null;
+        }
+    }
+
+    /** Atomically replaces the snapshot with FILES, as of the position
+     *  SEEN of the monitor's log. */
+    private void writeSnapshot(Monitor.Position seen,
+                               TreeMap<String, BasicFileAttributes> files) {
+        File tmp = new File(_snapshot.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(seen.getToken());
+            out.writeLong(seen.getOffset());
+            out.writeInt(files.size());
+            for (Map.Entry<String, BasicFileAttributes> e
+                     : files.entrySet()) {
+                BasicFileAttributes attrs = e.getValue();
+                Object key = attrs.fileKey();
+                out.writeUTF(e.getKey());
+                out.writeLong(attrs.size());
+                out.writeLong(attrs.lastModifiedTime()
+                              .to(TimeUnit.NANOSECONDS));
+                out.writeUTF(key == null ? "" : key.toString());
+            }
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+        try {
+            Files.move(tmp.toPath(), _snapshot.toPath(),
+                       StandardCopyOption.ATOMIC_MOVE,
+                       StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException excp) {
+            throw new IllegalArgumentException(excp.getMessage());
+        }
+    }
+
+    /** The attributes of a regular file as recorded in a snapshot. */
+    private static class Stat implements BasicFileAttributes {
+        /** Size in bytes. */
+        private final long _size;
+
+        /** Modification time. */
+        private final FileTime _mtime;
+
+        /** File key, or "". */
+        private final String _key;
+
+        /** Constructor for a file of SIZE bytes last modified MTIME
+         *  nanoseconds after the epoch, with file key KEY. */
+        Stat(long size, long mtime, String key) {
+            this._size = size;
+            this._mtime = FileTime.from(mtime, TimeUnit.NANOSECONDS);
+            this._key = key;
+        }
+
+        @Override
+        public FileTime lastModifiedTime() {
+            return _mtime;
+        }
+
+        @Override
+        public FileTime lastAccessTime() {
+            return _mtime;
+        }
+
+        @Override
+        public FileTime creationTime() {
+            return _mtime;
+        }
+
+        @Override
+        public boolean isRegularFile() {
+            return true;
+        }
+
+        @Override
+        public boolean isDirectory() {
+            return false;
+        }
+
+        @Override
+        public boolean isSymbolicLink() {
+            return false;
+        }
+
+        @Override
+        public boolean isOther() {
+            return false;
+        }
+
+        @Override
+        public long size() {
+            return _size;
+        }
+
+        @Override
+        public Object fileKey() {
+            return _key.isEmpty() ? null : _key;
+        }
+    }
+
+    /** The scan of one directory and, through forked subtasks, of the
+     *  directories below it. */
+    private class Scan
+        extends RecursiveTask<TreeMap<String, BasicFileAttributes>> {
+
+        /** Version of this class, as a RecursiveTask is serializable. */
+        private static final long serialVersionUID = 1L;
+
+        /** The directory. */
+        private final Path _dir;
+
+        /** Path of the directory within the tree, ending in SEPARATOR,
+         *  or "" for the root. */
+        private final String _prefix;
+
+        /** Constructor for the scan of DIR, whose path in the tree is
+         *  PREFIX. */
+        Scan(Path dir, String prefix) {
+            this._dir = dir;
+            this._prefix = prefix;
+        }
+
+        @Override
+        protected TreeMap<String, BasicFileAttributes> compute() {
+            TreeMap<String, BasicFileAttributes> result = new TreeMap<>();
+            List<Scan> subdirs = new ArrayList<>();
+            try (DirectoryStream<Path> entries =
+                     Files.newDirectoryStream(_dir)) {
+                for (Path entry : entries) {
+                    String name = entry.getFileName().toString();
+                    if (_prefix.isEmpty() && _excluded.contains(name)) {
+                        continue;
+                    }
+                    BasicFileAttributes attrs = Files.readAttributes(entry,
+                            BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        Scan sub = new Scan(entry, _prefix + name + SEPARATOR);
+                        sub.fork();
+                        subdirs.add(sub);
+                    } else if (attrs.isRegularFile()) {
+                        result.put(_prefix + name, attrs);
+                    }
+                }
+            } catch (NoSuchFileException excp) {
+                /* Removed while being scanned. */
+            } catch (IOException excp) {
+                throw new IllegalArgumentException(excp.getMessage());
+            }
+            for (Scan sub : subdirs) {
+                result.putAll(sub.join());
+            }
+            return result;
+        }
+    }
+}